@@ -0,0 +1,48 @@
+package com.flipboard.bottomsheet;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done for every move event while the sheet is dragged between its peeked and max translations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DragBenchmark {
+
+    private static final int SAMPLE_COUNT = 256;
+
+    private final float[] samples = new float[SAMPLE_COUNT];
+    private SimulatedSheet sheet;
+    private int sample;
+
+    @Setup
+    public void setUp() {
+        sheet = new SimulatedSheet();
+        float downY = SimulatedSheet.HEIGHT - SimulatedSheet.PEEK_TRANSLATION / 2;
+        sheet.touch(SheetGestureMachine.ACTION_DOWN, 500, downY, 0);
+        sheet.touch(SheetGestureMachine.ACTION_MOVE, 500, downY - 2 * SimulatedSheet.TOUCH_SLOP, 0);
+        // A finger moving up and down, staying clear of the max translation so the sheet is never expanded.
+        float range = (SimulatedSheet.MAX_TRANSLATION - SimulatedSheet.PEEK_TRANSLATION) / 2;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            samples[i] = downY - range * (float) Math.sin(2 * Math.PI * i / SAMPLE_COUNT);
+        }
+    }
+
+    @Benchmark
+    public float move() {
+        sample = (sample + 1) % SAMPLE_COUNT;
+        sheet.touch(SheetGestureMachine.ACTION_MOVE, 500, samples[sample], 0);
+        return sheet.translation;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.flipboard.bottomsheet;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete settle animation of a physics based motion model, stepped at 60 frames per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MotionBenchmark {
+
+    private static final float FRAME_TIME = 1 / 60f;
+    private static final int MAX_FRAMES = 600;
+
+    @Param({"spring", "decay"})
+    public String model;
+
+    private MotionModel motion;
+
+    @Setup
+    public void setUp() {
+        motion = "spring".equals(model) ? new SpringMotion() : new DecayMotion();
+    }
+
+    @Benchmark
+    public int settle() {
+        motion.start(900, 1800, 3000);
+        int frames = 0;
+        while (frames < MAX_FRAMES && !motion.update(FRAME_TIME)) {
+            frames++;
+        }
+        return frames;
+    }
+
+}
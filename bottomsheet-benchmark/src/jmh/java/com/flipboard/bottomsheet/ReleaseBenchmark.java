@@ -0,0 +1,66 @@
+package com.flipboard.bottomsheet;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the snap point a released sheet settles at, for increasing numbers of snap points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReleaseBenchmark {
+
+    private static final int SAMPLE_COUNT = 256;
+
+    @Param({"0", "3", "15", "63"})
+    public int snapPointCount;
+
+    private final float[] positions = new float[SAMPLE_COUNT];
+    private final float[] velocities = new float[SAMPLE_COUNT];
+    private SimulatedSheet sheet;
+    private int sample;
+
+    @Setup
+    public void setUp() {
+        sheet = new SimulatedSheet();
+        float[] snapPoints = new float[snapPointCount];
+        float step = (SimulatedSheet.MAX_TRANSLATION - SimulatedSheet.PEEK_TRANSLATION) / (snapPointCount + 1);
+        for (int i = 0; i < snapPointCount; i++) {
+            snapPoints[i] = SimulatedSheet.PEEK_TRANSLATION + step * (i + 1);
+        }
+        sheet.machine.setSnapTranslations(snapPoints);
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            positions[i] = SimulatedSheet.PEEK_TRANSLATION + random.nextFloat() * (SimulatedSheet.MAX_TRANSLATION - SimulatedSheet.PEEK_TRANSLATION);
+            velocities[i] = (random.nextFloat() * 2 - 1) * 8000;
+        }
+    }
+
+    /**
+     * A drag from the peeked translation to a random position, released with a random velocity.
+     */
+    @Benchmark
+    public float release() {
+        sample = (sample + 1) % SAMPLE_COUNT;
+        sheet.translation = SimulatedSheet.PEEK_TRANSLATION;
+        sheet.expanded = false;
+        float downY = SimulatedSheet.HEIGHT - SimulatedSheet.PEEK_TRANSLATION / 2;
+        float upY = downY - (positions[sample] - SimulatedSheet.PEEK_TRANSLATION) - SimulatedSheet.TOUCH_SLOP - 1;
+        sheet.touch(SheetGestureMachine.ACTION_DOWN, 500, downY, 0);
+        sheet.touch(SheetGestureMachine.ACTION_MOVE, 500, downY - SimulatedSheet.TOUCH_SLOP - 1, 0);
+        sheet.touch(SheetGestureMachine.ACTION_UP, 500, upY, velocities[sample]);
+        return sheet.translation;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.flipboard.bottomsheet;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking whether the sheet content under a touch can scroll up with a {@link ScrollTargetIndex}, over synthetic view
+ * trees of increasing depth: building the index, resolving the targets once per gesture and probing them on every
+ * move event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScrollProbeBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1800;
+    private static final int CHILDREN_PER_LEVEL = 4;
+    private static final float TOUCH_X = WIDTH / 2;
+    private static final float TOUCH_Y = 10;
+
+    @Param({"4", "16", "64"})
+    public int depth;
+
+    private final ScrollTargetIndex<SimulatedView> index = new ScrollTargetIndex<>(SimulatedView.NODES);
+    private SimulatedView root;
+
+    /**
+     * Builds a chain of nested layouts, every level having a few siblings beside the next level. A scrollable view
+     * sits at the bottom of the chain, right under the touch, and every few levels a scrollable sibling is placed away
+     * from the touch.
+     */
+    @Setup
+    public void setUp() {
+        root = new SimulatedView(0, 0, WIDTH, HEIGHT);
+        SimulatedView level = root;
+        for (int d = 0; d < depth; d++) {
+            int childHeight = level.height / CHILDREN_PER_LEVEL;
+            SimulatedView next = null;
+            for (int i = 0; i < CHILDREN_PER_LEVEL; i++) {
+                SimulatedView child = new SimulatedView(0, childHeight * i, level.width, childHeight);
+                level.addView(child);
+                if (i == 0) {
+                    next = child;
+                } else if (d % 4 == 0) {
+                    child.scrollRange = 100;
+                }
+            }
+            // Keep the chain tall enough to hit, the siblings only add breadth.
+            next.height = level.height;
+            level = next;
+        }
+        level.scrollRange = 1000;
+        level.scrollY = 1;
+        index.resolveTargets(root, TOUCH_X, TOUCH_Y);
+    }
+
+    /**
+     * Building the index and resolving the targets, done for the first gesture after the sheet hierarchy changed.
+     */
+    @Benchmark
+    public boolean buildIndex() {
+        index.invalidate();
+        index.resolveTargets(root, TOUCH_X, TOUCH_Y);
+        return index.canScrollUp();
+    }
+
+    /**
+     * Resolving the targets from the index, done once per gesture.
+     */
+    @Benchmark
+    public boolean resolveTargets() {
+        index.resolveTargets(root, TOUCH_X, TOUCH_Y);
+        return index.canScrollUp();
+    }
+
+    /**
+     * Probing the resolved targets, done on every move event while the sheet is expanded.
+     */
+    @Benchmark
+    public boolean canScrollUp() {
+        return index.canScrollUp();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.flipboard.bottomsheet;
+
+
+import java.util.ArrayList;
+
+/**
+ * A view without the Android framework, with just the geometry and scroll state a {@link ScrollTargetIndex} reads.
+ */
+final class SimulatedView {
+
+    /** Reads simulated views the way BottomSheetLayout reads real ones */
+    static final ScrollTargetIndex.Nodes<SimulatedView> NODES = new ScrollTargetIndex.Nodes<SimulatedView>() {
+        @Override
+        public int getChildCount(SimulatedView node) {
+            return node.children.size();
+        }
+
+        @Override
+        public SimulatedView getChildAt(SimulatedView node, int index) {
+            return node.children.get(index);
+        }
+
+        @Override
+        public SimulatedView getParent(SimulatedView node) {
+            return node.parent;
+        }
+
+        @Override
+        public int getLeft(SimulatedView node) {
+            return node.left;
+        }
+
+        @Override
+        public int getTop(SimulatedView node) {
+            return node.top;
+        }
+
+        @Override
+        public int getWidth(SimulatedView node) {
+            return node.width;
+        }
+
+        @Override
+        public int getHeight(SimulatedView node) {
+            return node.height;
+        }
+
+        @Override
+        public int getScrollX(SimulatedView node) {
+            return node.scrollX;
+        }
+
+        @Override
+        public int getScrollY(SimulatedView node) {
+            return node.scrollY;
+        }
+
+        @Override
+        public boolean isNestedScrollingEnabled(SimulatedView node) {
+            return node.nestedScrollingEnabled;
+        }
+
+        @Override
+        public boolean canScrollVertically(SimulatedView node, int direction) {
+            return direction < 0 ? node.scrollY > 0 : node.scrollY < node.scrollRange;
+        }
+    };
+
+    final ArrayList<SimulatedView> children = new ArrayList<>();
+    SimulatedView parent;
+
+    int left;
+    int top;
+    int width;
+    int height;
+    int scrollX;
+    int scrollY;
+
+    /** How far the content of the view can scroll vertically, 0 for a view which does not scroll */
+    int scrollRange;
+    boolean nestedScrollingEnabled;
+
+    SimulatedView(int left, int top, int width, int height) {
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    void addView(SimulatedView child) {
+        child.parent = this;
+        children.add(child);
+    }
+
+}
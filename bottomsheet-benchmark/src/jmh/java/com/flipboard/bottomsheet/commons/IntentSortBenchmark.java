@@ -0,0 +1,93 @@
+package com.flipboard.bottomsheet.commons;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the list of activities an IntentPickerSheetView shows with {@link IntentPickerList}, done whenever its
+ * adapter is created. The activities are synthetic, as resolving real activities needs a PackageManager, and the list
+ * is sorted alphabetically like the default sort method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IntentSortBenchmark {
+
+    private static final int MIXIN_COUNT = 2;
+
+    /** The number of activities resolved for the intent */
+    @Param({"10", "100", "500"})
+    public int activityCount;
+
+    private final List<String> resolvedLabels = new ArrayList<>();
+    private final List<String> resolvedPackages = new ArrayList<>();
+    private final List<Info> mixins = new ArrayList<>();
+
+    /**
+     * Stands in for IntentPickerSheetView.ActivityInfo.
+     */
+    private static final class Info {
+
+        final String label;
+        final String packageName;
+
+        Info(String label, String packageName) {
+            this.label = label;
+            this.packageName = packageName;
+        }
+
+    }
+
+    private final Comparator<Info> sortMethod = new Comparator<Info>() {
+        @Override
+        public int compare(Info lhs, Info rhs) {
+            return lhs.label.compareTo(rhs.label);
+        }
+    };
+
+    /** Leaves out the activities of the app itself, the usual reason for a filter */
+    private final IntentPickerList.Filter<Info> filter = new IntentPickerList.Filter<Info>() {
+        @Override
+        public boolean include(Info item) {
+            return !"com.example.self".equals(item.packageName);
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < activityCount; i++) {
+            // Labels of installed apps often share a prefix, which the string comparison has to get past.
+            String prefix = random.nextInt(4) == 0 ? "Google " : "";
+            resolvedLabels.add(prefix + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+            resolvedPackages.add(i % 10 == 0 ? "com.example.self" : "com.example.app" + i);
+        }
+        for (int i = 0; i < MIXIN_COUNT; i++) {
+            mixins.add(new Info("Mixin " + i, "com.example.self"));
+        }
+    }
+
+    @Benchmark
+    public int buildActivityList() {
+        // The adapter resolves fresh activities every time it is created.
+        List<Info> resolved = new ArrayList<>(resolvedLabels.size());
+        for (int i = 0, size = resolvedLabels.size(); i < size; i++) {
+            resolved.add(new Info(resolvedLabels.get(i), resolvedPackages.get(i)));
+        }
+        return IntentPickerList.build(mixins, resolved, filter, sortMethod).size();
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.flipboard.bottomsheet.commons;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening a menu into the items of a MenuSheetView with {@link MenuFlattener}, done whenever the menu is updated.
+ * The menu items are synthetic, as a real Menu needs the Android framework.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MenuFlattenBenchmark {
+
+    private static final Entry SEPARATOR = new Entry(null);
+
+    /** The number of top level items, every eighth of which is a submenu of four items */
+    @Param({"8", "64", "512"})
+    public int itemCount;
+
+    @Param({"list", "grid"})
+    public String menuType;
+
+    private static final MenuFlattener<List<Item>, Item> FLATTENER = new MenuFlattener<>(new MenuFlattener.Reader<List<Item>, Item>() {
+        @Override
+        public int size(List<Item> menu) {
+            return menu.size();
+        }
+
+        @Override
+        public Item getItem(List<Item> menu, int index) {
+            return menu.get(index);
+        }
+
+        @Override
+        public boolean hasVisibleItems(List<Item> menu) {
+            for (int i = 0, size = menu.size(); i < size; i++) {
+                if (menu.get(i).visible) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isVisible(Item item) {
+            return item.visible;
+        }
+
+        @Override
+        public List<Item> getSubMenu(Item item) {
+            return item.subMenu;
+        }
+
+        @Override
+        public boolean hasTitle(Item item) {
+            return !item.title.isEmpty();
+        }
+
+        @Override
+        public int getGroupId(Item item) {
+            return item.groupId;
+        }
+    });
+
+    private final ArrayList<Entry> items = new ArrayList<>();
+
+    /** Wraps every flattened item like MenuSheetView does */
+    private final MenuFlattener.Sink<Item> sink = new MenuFlattener.Sink<Item>() {
+        @Override
+        public void addSeparator() {
+            items.add(SEPARATOR);
+        }
+
+        @Override
+        public void addItem(Item item) {
+            items.add(new Entry(item));
+        }
+    };
+    private final List<Item> menu = new ArrayList<>();
+    private boolean list;
+
+    private static final class Item {
+
+        final int groupId;
+        final boolean visible;
+        final String title;
+        final List<Item> subMenu;
+
+        Item(int groupId, boolean visible, String title, List<Item> subMenu) {
+            this.groupId = groupId;
+            this.visible = visible;
+            this.title = title;
+            this.subMenu = subMenu;
+        }
+
+    }
+
+    /**
+     * Stands in for MenuSheetView.SheetMenuItem, which wraps every flattened item.
+     */
+    private static final class Entry {
+
+        final Item item;
+
+        Entry(Item item) {
+            this.item = item;
+        }
+
+    }
+
+    @Setup
+    public void setUp() {
+        list = "list".equals(menuType);
+        for (int i = 0; i < itemCount; i++) {
+            if (i % 8 == 7) {
+                List<Item> subMenu = new ArrayList<>();
+                for (int j = 0; j < 4; j++) {
+                    subMenu.add(new Item(0, j != 3, "Sub item " + j, null));
+                }
+                menu.add(new Item(0, true, i % 16 == 7 ? "Submenu " + i : "", subMenu));
+            } else {
+                // Groups of three items, with the odd hidden item.
+                menu.add(new Item(i / 3, i % 5 != 4, "Item " + i, null));
+            }
+        }
+    }
+
+    @Benchmark
+    public int prepareMenuItems() {
+        items.clear();
+        FLATTENER.flatten(menu, list, sink);
+        return items.size();
+    }
+
+}
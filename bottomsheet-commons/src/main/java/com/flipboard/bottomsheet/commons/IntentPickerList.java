@@ -0,0 +1,34 @@
+package com.flipboard.bottomsheet.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds the list of activities shown by an {@link IntentPickerSheetView}, independent of the Android framework. The
+ * mixins come first, followed by the resolved activities which pass the filter, and the whole list is then sorted.
+ */
+final class IntentPickerList {
+
+    interface Filter<T> {
+        boolean include(T item);
+    }
+
+    private IntentPickerList() {
+    }
+
+    static <T> List<T> build(List<T> mixins, List<T> resolved, Filter<? super T> filter, Comparator<? super T> sortMethod) {
+        List<T> items = new ArrayList<>(resolved.size() + mixins.size());
+        items.addAll(mixins);
+        for (int i = 0, size = resolved.size(); i < size; i++) {
+            T item = resolved.get(i);
+            if (filter.include(item)) {
+                items.add(item);
+            }
+        }
+        Collections.sort(items, sortMethod);
+        return items;
+    }
+
+}
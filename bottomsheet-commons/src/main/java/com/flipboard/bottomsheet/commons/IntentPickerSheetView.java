@@ -23,7 +23,6 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -190,16 +189,18 @@ public class IntentPickerSheetView extends FrameLayout {
             inflater = LayoutInflater.from(context);
             packageManager = context.getPackageManager();
             List<ResolveInfo> infos = packageManager.queryIntentActivities(intent, 0);
-            activityInfos = new ArrayList<>(infos.size() + mixins.size());
-            activityInfos.addAll(mixins);
+            List<ActivityInfo> resolved = new ArrayList<>(infos.size());
             for (ResolveInfo info : infos) {
                 ComponentName componentName = new ComponentName(info.activityInfo.packageName, info.activityInfo.name);
-                ActivityInfo activityInfo = new ActivityInfo(info, info.loadLabel(packageManager), componentName);
-                if (filter.include(activityInfo)) {
-                    activityInfos.add(activityInfo);
-                }
+                resolved.add(new ActivityInfo(info, info.loadLabel(packageManager), componentName));
             }
-            Collections.sort(activityInfos, sortMethod);
+            final Filter filter = IntentPickerSheetView.this.filter;
+            activityInfos = IntentPickerList.build(mixins, resolved, new IntentPickerList.Filter<ActivityInfo>() {
+                @Override
+                public boolean include(ActivityInfo item) {
+                    return filter.include(item);
+                }
+            }, sortMethod);
         }
 
         @Override
@@ -0,0 +1,107 @@
+package com.flipboard.bottomsheet.commons;
+
+/**
+ * Flattens the visible items of a menu and its submenus into a single list, while inserting separators between items
+ * when necessary. The menu is read through a {@link Reader}, which keeps the flattening independent of the Android
+ * framework.
+ *
+ * Adapted from the Design support library's NavigationMenuPresenter implementation
+ *
+ * @param <M> The type of menus, Menu in {@link MenuSheetView}.
+ * @param <I> The type of menu items, MenuItem in {@link MenuSheetView}.
+ */
+final class MenuFlattener<M, I> {
+
+    /**
+     * Read access to a menu, with the same meaning as the methods of Menu and MenuItem of the same name.
+     */
+    interface Reader<M, I> {
+
+        int size(M menu);
+
+        I getItem(M menu, int index);
+
+        boolean hasVisibleItems(M menu);
+
+        boolean isVisible(I item);
+
+        /**
+         * @return The submenu of item, or null if it has none.
+         */
+        M getSubMenu(I item);
+
+        /**
+         * @return Whether item has a title to show as the header of its submenu.
+         */
+        boolean hasTitle(I item);
+
+        int getGroupId(I item);
+
+    }
+
+    /**
+     * Receives the flattened items in order.
+     */
+    interface Sink<I> {
+
+        void addSeparator();
+
+        void addItem(I item);
+
+    }
+
+    private final Reader<M, I> reader;
+
+    MenuFlattener(Reader<M, I> reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param separators Whether to separate groups and submenus, and add the headers of submenus, as done for lists.
+     */
+    void flatten(M menu, boolean separators, Sink<I> sink) {
+        int currentGroupId = 0;
+
+        // Iterate over the menu items
+        for (int i = 0, size = reader.size(menu); i < size; i++) {
+            I item = reader.getItem(menu, i);
+            if (reader.isVisible(item)) {
+                M subMenu = reader.getSubMenu(item);
+                if (subMenu != null) {
+                    // Flatten the submenu
+                    if (reader.hasVisibleItems(subMenu)) {
+                        if (separators) {
+                            sink.addSeparator();
+
+                            // Add a header item if it has text
+                            if (reader.hasTitle(item)) {
+                                sink.addItem(item);
+                            }
+                        }
+
+                        // Add the sub-items
+                        for (int subI = 0, subSize = reader.size(subMenu); subI < subSize; subI++) {
+                            I subMenuItem = reader.getItem(subMenu, subI);
+                            if (reader.isVisible(subMenuItem)) {
+                                sink.addItem(subMenuItem);
+                            }
+                        }
+
+                        // Add one more separator to the end to close it off if we have more items
+                        if (separators && i != size - 1) {
+                            sink.addSeparator();
+                        }
+                    }
+                } else {
+                    int groupId = reader.getGroupId(item);
+                    if (groupId != currentGroupId && separators) {
+                        sink.addSeparator();
+                    }
+                    sink.addItem(item);
+                    currentGroupId = groupId;
+                }
+            }
+        }
+    }
+
+}
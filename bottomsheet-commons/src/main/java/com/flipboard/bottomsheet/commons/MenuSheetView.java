@@ -14,7 +14,6 @@ import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.view.SubMenu;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
@@ -57,9 +56,57 @@ public class MenuSheetView extends FrameLayout {
      */
     public enum MenuType {LIST, GRID}
 
+    private static final MenuFlattener<Menu, MenuItem> MENU_FLATTENER = new MenuFlattener<>(new MenuFlattener.Reader<Menu, MenuItem>() {
+        @Override
+        public int size(Menu menu) {
+            return menu.size();
+        }
+
+        @Override
+        public MenuItem getItem(Menu menu, int index) {
+            return menu.getItem(index);
+        }
+
+        @Override
+        public boolean hasVisibleItems(Menu menu) {
+            return menu.hasVisibleItems();
+        }
+
+        @Override
+        public boolean isVisible(MenuItem item) {
+            return item.isVisible();
+        }
+
+        @Override
+        public Menu getSubMenu(MenuItem item) {
+            return item.hasSubMenu() ? item.getSubMenu() : null;
+        }
+
+        @Override
+        public boolean hasTitle(MenuItem item) {
+            return !TextUtils.isEmpty(item.getTitle());
+        }
+
+        @Override
+        public int getGroupId(MenuItem item) {
+            return item.getGroupId();
+        }
+    });
+
     private Menu menu;
     private final MenuType menuType;
     private ArrayList<SheetMenuItem> items = new ArrayList<>();
+    private final MenuFlattener.Sink<MenuItem> itemSink = new MenuFlattener.Sink<MenuItem>() {
+        @Override
+        public void addSeparator() {
+            items.add(SheetMenuItem.SEPARATOR);
+        }
+
+        @Override
+        public void addItem(MenuItem item) {
+            items.add(SheetMenuItem.of(item));
+        }
+    };
     private Adapter adapter;
     private AbsListView absListView;
     private final TextView titleView;
@@ -153,53 +200,10 @@ public class MenuSheetView extends FrameLayout {
     /**
      * Flattens the visible menu items of {@link #menu} into {@link #items},
      * while inserting separators between items when necessary.
-     *
-     * Adapted from the Design support library's NavigationMenuPresenter implementation
      */
     private void prepareMenuItems() {
         items.clear();
-        int currentGroupId = 0;
-
-        // Iterate over the menu items
-        for (int i = 0; i < menu.size(); i++) {
-            MenuItem item = menu.getItem(i);
-            if (item.isVisible()) {
-                if (item.hasSubMenu()) {
-                    // Flatten the submenu
-                    SubMenu subMenu = item.getSubMenu();
-                    if (subMenu.hasVisibleItems()) {
-                        if (menuType == LIST) {
-                            items.add(SheetMenuItem.SEPARATOR);
-
-                            // Add a header item if it has text
-                            if (!TextUtils.isEmpty(item.getTitle())) {
-                                items.add(SheetMenuItem.of(item));
-                            }
-                        }
-
-                        // Add the sub-items
-                        for (int subI = 0, size = subMenu.size(); subI < size; subI++) {
-                            MenuItem subMenuItem = subMenu.getItem(subI);
-                            if (subMenuItem.isVisible()) {
-                                items.add(SheetMenuItem.of(subMenuItem));
-                            }
-                        }
-
-                        // Add one more separator to the end to close it off if we have more items
-                        if (menuType == LIST && i != menu.size() - 1) {
-                            items.add(SheetMenuItem.SEPARATOR);
-                        }
-                    }
-                } else {
-                    int groupId = item.getGroupId();
-                    if (groupId != currentGroupId && menuType == LIST) {
-                        items.add(SheetMenuItem.SEPARATOR);
-                    }
-                    items.add(SheetMenuItem.of(item));
-                    currentGroupId = groupId;
-                }
-            }
-        }
+        MENU_FLATTENER.flatten(menu, menuType == LIST, itemSink);
     }
 
     /**
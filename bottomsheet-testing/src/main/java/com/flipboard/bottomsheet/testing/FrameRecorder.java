@@ -0,0 +1,181 @@
+package com.flipboard.bottomsheet.testing;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+
+import com.flipboard.bottomsheet.BottomSheetLayout;
+import com.flipboard.bottomsheet.PureViewTransformer;
+import com.flipboard.bottomsheet.ViewTransformer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hosts a BottomSheetLayout driven by a {@link SteppedFrameClock} and records the work done in every frame: the sheet
+ * translation, the calls to the view transformer, and the layout requests, layout passes and invalidations reaching
+ * the recorder from the layout below it. Invalidations are counted as they travel up the view hierarchy, which is how
+ * they are propagated with software rendering, for example when running under Robolectric.
+ */
+public class FrameRecorder extends FrameLayout implements SteppedFrameClock.OnFrameListener {
+
+    /**
+     * The work done in a single frame.
+     */
+    public static final class Frame {
+
+        public final int index;
+        public final long frameTimeMillis;
+        public final float sheetTranslation;
+        public final int transformerCalls;
+        public final int layoutRequests;
+        public final int layoutPasses;
+        public final int invalidations;
+
+        Frame(int index, long frameTimeMillis, float sheetTranslation, int transformerCalls, int layoutRequests, int layoutPasses, int invalidations) {
+            this.index = index;
+            this.frameTimeMillis = frameTimeMillis;
+            this.sheetTranslation = sheetTranslation;
+            this.transformerCalls = transformerCalls;
+            this.layoutRequests = layoutRequests;
+            this.layoutPasses = layoutPasses;
+            this.invalidations = invalidations;
+        }
+
+        @Override
+        public String toString() {
+            return "Frame{index=" + index + ", frameTimeMillis=" + frameTimeMillis + ", sheetTranslation=" + sheetTranslation
+                    + ", transformerCalls=" + transformerCalls + ", layoutRequests=" + layoutRequests
+                    + ", layoutPasses=" + layoutPasses + ", invalidations=" + invalidations + "}";
+        }
+
+    }
+
+    private class RecordingViewTransformer implements ViewTransformer {
+
+        private final ViewTransformer viewTransformer;
+
+        RecordingViewTransformer(ViewTransformer viewTransformer) {
+            this.viewTransformer = viewTransformer;
+        }
+
+        @Override
+        public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+            transformerCalls++;
+            viewTransformer.transformView(translation, maxTranslation, peekedTranslation, parent, view);
+        }
+
+        @Override
+        public float getDimAlpha(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+            return viewTransformer.getDimAlpha(translation, maxTranslation, peekedTranslation, parent, view);
+        }
+
+    }
+
+    /** Keeps a pure transformer pure, so the layout skips it exactly as it would skip the wrapped transformer */
+    private class RecordingPureViewTransformer extends RecordingViewTransformer implements PureViewTransformer {
+
+        RecordingPureViewTransformer(PureViewTransformer viewTransformer) {
+            super(viewTransformer);
+        }
+
+    }
+
+    private final BottomSheetLayout bottomSheetLayout;
+    private final SteppedFrameClock frameClock;
+    private final ArrayList<Frame> frames = new ArrayList<>();
+    private int transformerCalls;
+    private int layoutRequests;
+    private int layoutPasses;
+    private int invalidations;
+
+    /**
+     * Add bottomSheetLayout to this recorder and drive its animations with frameClock.
+     */
+    public FrameRecorder(Context context, BottomSheetLayout bottomSheetLayout, SteppedFrameClock frameClock) {
+        super(context);
+        this.bottomSheetLayout = bottomSheetLayout;
+        this.frameClock = frameClock;
+        bottomSheetLayout.setFrameClock(frameClock);
+        addView(bottomSheetLayout, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        frameClock.addOnFrameListener(this);
+        reset();
+    }
+
+    /**
+     * Wrap a view transformer so its calls are recorded. Pass the result to the BottomSheetLayout instead of the original.
+     */
+    public ViewTransformer record(ViewTransformer viewTransformer) {
+        if (viewTransformer instanceof PureViewTransformer) {
+            return new RecordingPureViewTransformer((PureViewTransformer) viewTransformer);
+        }
+        return new RecordingViewTransformer(viewTransformer);
+    }
+
+    public BottomSheetLayout getBottomSheetLayout() {
+        return bottomSheetLayout;
+    }
+
+    public SteppedFrameClock getFrameClock() {
+        return frameClock;
+    }
+
+    /**
+     * @return The frames recorded since the last call to {@link #reset()}.
+     */
+    public List<Frame> getFrames() {
+        return Collections.unmodifiableList(frames);
+    }
+
+    /**
+     * Forget the recorded frames along with the work done since the last frame.
+     */
+    public void reset() {
+        frames.clear();
+        resetCounters();
+    }
+
+    /**
+     * Stop recording, the frame clock remains set on the BottomSheetLayout.
+     */
+    public void release() {
+        frameClock.removeOnFrameListener(this);
+    }
+
+    @Override
+    public void onFrame(long frameTimeMillis) {
+        frames.add(new Frame(frames.size(), frameTimeMillis, bottomSheetLayout.getSheetTranslation(), transformerCalls,
+                layoutRequests, layoutPasses, invalidations));
+        resetCounters();
+    }
+
+    private void resetCounters() {
+        transformerCalls = 0;
+        layoutRequests = 0;
+        layoutPasses = 0;
+        invalidations = 0;
+    }
+
+    @Override
+    public void requestLayout() {
+        super.requestLayout();
+        layoutRequests++;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        layoutPasses++;
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        invalidations++;
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.flipboard.bottomsheet.testing;
+
+import android.view.View;
+
+import com.flipboard.bottomsheet.FrameClock;
+
+import java.util.ArrayList;
+
+/**
+ * A {@link FrameClock} which only advances when told to. Every call to {@link #advanceFrame()} moves the clock forward
+ * by a fixed frame interval and runs the callbacks posted before it, so an animation driven by this clock produces the
+ * exact same frames on every run, independent of the speed of the machine running the test.
+ */
+public class SteppedFrameClock implements FrameClock {
+
+    /**
+     * Notified after every frame, once all callbacks of the frame have run.
+     */
+    public interface OnFrameListener {
+        void onFrame(long frameTimeMillis);
+    }
+
+    /** The frame interval of a 60Hz display, rounded down to whole milliseconds */
+    public static final long DEFAULT_FRAME_INTERVAL = 16;
+
+    private final long frameInterval;
+    private final ArrayList<Runnable> pendingCallbacks = new ArrayList<>();
+    private final ArrayList<Runnable> frameCallbacks = new ArrayList<>();
+    private final ArrayList<OnFrameListener> onFrameListeners = new ArrayList<>();
+    private long frameTime;
+    private float durationScale = 1;
+
+    public SteppedFrameClock() {
+        this(DEFAULT_FRAME_INTERVAL);
+    }
+
+    /**
+     * @param frameInterval The time between two frames in milliseconds.
+     */
+    public SteppedFrameClock(long frameInterval) {
+        if (frameInterval <= 0) {
+            throw new IllegalArgumentException("frameInterval must be positive");
+        }
+        this.frameInterval = frameInterval;
+    }
+
+    @Override
+    public long getFrameTimeMillis() {
+        return frameTime;
+    }
+
+    @Override
+    public void postFrameCallback(View host, Runnable callback) {
+        pendingCallbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(View host, Runnable callback) {
+        pendingCallbacks.remove(callback);
+    }
+
+    @Override
+    public float getDurationScale(View host) {
+        return durationScale;
+    }
+
+    /**
+     * Simulate the animator duration scale of the system, 0 turns animations off. Applies to animations started afterwards.
+     *
+     * @param durationScale The factor animation durations are scaled by, 1 by default.
+     */
+    public void setDurationScale(float durationScale) {
+        if (durationScale < 0) {
+            throw new IllegalArgumentException("durationScale must not be negative");
+        }
+        this.durationScale = durationScale;
+    }
+
+    public void addOnFrameListener(OnFrameListener onFrameListener) {
+        onFrameListeners.add(onFrameListener);
+    }
+
+    public void removeOnFrameListener(OnFrameListener onFrameListener) {
+        onFrameListeners.remove(onFrameListener);
+    }
+
+    /**
+     * @return Whether any callbacks are waiting for the next frame.
+     */
+    public boolean hasPendingCallbacks() {
+        return !pendingCallbacks.isEmpty();
+    }
+
+    /**
+     * Move the clock forward by one frame and run the callbacks which were posted before. Callbacks posted while the
+     * frame runs are left for the next frame.
+     */
+    public void advanceFrame() {
+        frameTime += frameInterval;
+        frameCallbacks.addAll(pendingCallbacks);
+        pendingCallbacks.clear();
+        for (int i = 0; i < frameCallbacks.size(); i++) {
+            frameCallbacks.get(i).run();
+        }
+        frameCallbacks.clear();
+        for (int i = 0; i < onFrameListeners.size(); i++) {
+            onFrameListeners.get(i).onFrame(frameTime);
+        }
+    }
+
+    /**
+     * Advance frame by frame until no more callbacks are pending, which is the case once all animations have ended.
+     *
+     * @param maxFrames The most frames to advance, a guard against animations which never end.
+     *
+     * @return The number of frames advanced.
+     */
+    public int advanceUntilIdle(int maxFrames) {
+        int frames = 0;
+        while (hasPendingCallbacks()) {
+            if (frames == maxFrames) {
+                throw new IllegalStateException("Still animating after " + maxFrames + " frames");
+            }
+            advanceFrame();
+            frames++;
+        }
+        return frames;
+    }
+
+}
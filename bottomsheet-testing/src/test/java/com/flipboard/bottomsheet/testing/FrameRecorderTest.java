@@ -0,0 +1,170 @@
+package com.flipboard.bottomsheet.testing;
+
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.flipboard.bottomsheet.BaseViewTransformer;
+import com.flipboard.bottomsheet.BottomSheetLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import flipboard.bottomsheet.testing.BuildConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FrameRecorderTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int SHEET_HEIGHT = 1000;
+    private static final float PEEK_TRANSLATION = 500;
+    private static final int MAX_FRAMES = 100;
+
+    private SteppedFrameClock frameClock;
+    private BottomSheetLayout bottomSheetLayout;
+    private FrameRecorder recorder;
+    private View sheetView;
+
+    @Before
+    public void setUp() {
+        frameClock = new SteppedFrameClock();
+        bottomSheetLayout = new BottomSheetLayout(RuntimeEnvironment.application);
+        bottomSheetLayout.setContentView(new View(RuntimeEnvironment.application));
+        bottomSheetLayout.setPeekSheetTranslation(PEEK_TRANSLATION);
+        // Start the peek animation right away instead of after the first draw, which does not happen without a window.
+        bottomSheetLayout.setFastPresent(true);
+        recorder = new FrameRecorder(RuntimeEnvironment.application, bottomSheetLayout, frameClock);
+        recorder.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recorder.layout(0, 0, WIDTH, HEIGHT);
+
+        sheetView = new View(RuntimeEnvironment.application);
+        sheetView.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, SHEET_HEIGHT));
+    }
+
+    private void showSheet() {
+        bottomSheetLayout.showWithSheetView(sheetView, recorder.record(new BaseViewTransformer() {
+            @Override
+            public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+            }
+        }));
+    }
+
+    @Test
+    public void peekIsSteppedFrameByFrame() {
+        showSheet();
+        recorder.reset();
+
+        int frameCount = frameClock.advanceUntilIdle(MAX_FRAMES);
+
+        // The default transition takes 300ms, which is 19 frames of 16ms.
+        assertEquals(19, frameCount);
+        List<FrameRecorder.Frame> frames = recorder.getFrames();
+        assertEquals(frameCount, frames.size());
+        float previousTranslation = 0;
+        for (FrameRecorder.Frame frame : frames) {
+            assertTrue(frame.toString(), frame.sheetTranslation > previousTranslation);
+            assertEquals(frame.toString(), 1, frame.transformerCalls);
+            assertEquals(frame.toString(), 0, frame.layoutRequests);
+            previousTranslation = frame.sheetTranslation;
+        }
+        assertEquals(PEEK_TRANSLATION, frames.get(frames.size() - 1).sheetTranslation, 0);
+        assertEquals(BottomSheetLayout.State.PEEKED, bottomSheetLayout.getState());
+    }
+
+    @Test
+    public void dismissIsSteppedFrameByFrame() {
+        showSheet();
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        recorder.reset();
+
+        bottomSheetLayout.dismissSheet();
+        int frameCount = frameClock.advanceUntilIdle(MAX_FRAMES);
+
+        assertEquals(19, frameCount);
+        assertEquals(0, recorder.getFrames().get(frameCount - 1).sheetTranslation, 0);
+        assertEquals(BottomSheetLayout.State.HIDDEN, bottomSheetLayout.getState());
+        assertNull(bottomSheetLayout.getSheetView());
+    }
+
+    @Test
+    public void coalescedCommandsRunOnTheNextFrame() {
+        bottomSheetLayout.setCoalesceSheetCommands(true);
+        showSheet();
+        bottomSheetLayout.expandSheet();
+        assertFalse(bottomSheetLayout.isSheetShowing());
+
+        // The show is applied in the first frame, the expand issued along with it is dropped.
+        frameClock.advanceFrame();
+        assertTrue(bottomSheetLayout.isSheetShowing());
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        assertEquals(BottomSheetLayout.State.PEEKED, bottomSheetLayout.getState());
+        assertEquals(PEEK_TRANSLATION, bottomSheetLayout.getSheetTranslation(), 0);
+
+        bottomSheetLayout.dismissSheet();
+        assertTrue(bottomSheetLayout.isSheetShowing());
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        assertFalse(bottomSheetLayout.isSheetShowing());
+    }
+
+    @Test
+    public void pushingASheetDropsThePendingCommand() {
+        showSheet();
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        bottomSheetLayout.setCoalesceSheetCommands(true);
+
+        // The push is applied right away and supersedes the dismiss waiting for the next frame.
+        bottomSheetLayout.dismissSheet();
+        View pushedSheetView = new View(RuntimeEnvironment.application);
+        pushedSheetView.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, SHEET_HEIGHT));
+        bottomSheetLayout.pushSheetView(pushedSheetView, null);
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+
+        assertTrue(bottomSheetLayout.isSheetShowing());
+        assertEquals(pushedSheetView, bottomSheetLayout.getSheetView());
+        assertEquals(1, bottomSheetLayout.getSheetBackStackSize());
+    }
+
+    @Test
+    public void parkedSheetIsMeasuredWhenShownAgain() {
+        bottomSheetLayout.showWithSheetView(sheetView, null, 1);
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        bottomSheetLayout.dismissSheet();
+        frameClock.advanceUntilIdle(MAX_FRAMES);
+        assertEquals(sheetView, bottomSheetLayout.getRecycledSheetView(1));
+
+        // Layout passes skip the parked sheet, so it keeps its size until it is shown again.
+        int narrowWidth = WIDTH / 2;
+        recorder.measure(View.MeasureSpec.makeMeasureSpec(narrowWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recorder.layout(0, 0, narrowWidth, HEIGHT);
+        assertEquals(WIDTH, sheetView.getMeasuredWidth());
+
+        bottomSheetLayout.showWithSheetView(sheetView, null, 1);
+        assertEquals(narrowWidth, sheetView.getMeasuredWidth());
+        assertEquals(narrowWidth, sheetView.getWidth());
+    }
+
+    @Test
+    public void animationsOffEndTransitionsInOneFrame() {
+        frameClock.setDurationScale(0);
+        showSheet();
+        recorder.reset();
+
+        assertEquals(1, frameClock.advanceUntilIdle(MAX_FRAMES));
+        assertEquals(PEEK_TRANSLATION, recorder.getFrames().get(0).sheetTranslation, 0);
+    }
+
+}
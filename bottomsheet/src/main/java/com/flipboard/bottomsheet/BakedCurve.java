@@ -0,0 +1,74 @@
+package com.flipboard.bottomsheet;
+
+import android.animation.TimeInterpolator;
+
+/**
+ * A curve on the range [0, 1] which has been sampled into a lookup table. Evaluating it costs a table lookup and a linear
+ * interpolation between two samples, no matter how expensive the sampled function is, which makes it suited for code
+ * running on every frame. The first and last samples are exact, so a baked curve ends exactly where the original one does.
+ */
+public final class BakedCurve {
+
+    /** Enough samples for the error of a typical easing curve to stay well below a pixel over the height of a screen */
+    public static final int DEFAULT_SAMPLE_COUNT = 129;
+
+    private final float[] samples;
+    private final int lastIndex;
+
+    /**
+     * @param samples Values of the curve at evenly spaced points from 0 to 1, inclusive. At least two samples are required.
+     */
+    public BakedCurve(float[] samples) {
+        if (samples.length < 2) {
+            throw new IllegalArgumentException("At least two samples are required");
+        }
+        this.samples = samples.clone();
+        this.lastIndex = samples.length - 1;
+    }
+
+    /**
+     * Sample an interpolator into a curve with {@link #DEFAULT_SAMPLE_COUNT} samples.
+     */
+    public static BakedCurve bake(TimeInterpolator interpolator) {
+        return bake(interpolator, DEFAULT_SAMPLE_COUNT);
+    }
+
+    /**
+     * Sample an interpolator into a curve.
+     *
+     * @param sampleCount The number of samples to take, at least two.
+     */
+    public static BakedCurve bake(TimeInterpolator interpolator, int sampleCount) {
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException("At least two samples are required");
+        }
+        float[] samples = new float[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            samples[i] = interpolator.getInterpolation((float) i / (sampleCount - 1));
+        }
+        return new BakedCurve(samples);
+    }
+
+    /**
+     * @param x The point to evaluate the curve at, values outside of [0, 1] are clamped.
+     */
+    public float getValue(float x) {
+        if (!(x > 0)) {
+            // Also catches NaN.
+            return samples[0];
+        }
+        if (x >= 1) {
+            return samples[lastIndex];
+        }
+        float position = x * lastIndex;
+        int index = (int) position;
+        float fraction = position - index;
+        float start = samples[index];
+        return start + (samples[index + 1] - start) * fraction;
+    }
+
+    public int getSampleCount() {
+        return samples.length;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.flipboard.bottomsheet;
+
+import android.animation.TimeInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * An interpolator backed by a {@link BakedCurve}. Interpolators such as {@link DecelerateInterpolator} call Math.pow()
+ * for every frame, a baked interpolator looks the value up instead.
+ */
+public final class BakedInterpolator implements Interpolator {
+
+    /** The curve BottomSheetLayout animates the sheet with by default, {@code new DecelerateInterpolator(1.6f)} */
+    public static final BakedInterpolator DECELERATE = new BakedInterpolator(new DecelerateInterpolator(1.6f));
+
+    private final BakedCurve curve;
+
+    /**
+     * Bake an interpolator with {@link BakedCurve#DEFAULT_SAMPLE_COUNT} samples.
+     */
+    public BakedInterpolator(TimeInterpolator interpolator) {
+        this(BakedCurve.bake(interpolator));
+    }
+
+    public BakedInterpolator(BakedCurve curve) {
+        this.curve = curve;
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        return curve.getValue(input);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.flipboard.bottomsheet;
+
+import android.view.View;
+
+/**
+ * Wraps a {@link PureViewTransformer} and bakes its dim curve into a {@link BakedCurve} over the progress of the sheet from
+ * hidden to its max translation. The curve is baked again whenever the max or peeked translation changes, which only
+ * happens when the sheet or this layout is resized. Transforming the content view is delegated to the wrapped transformer.
+ */
+public class BakedViewTransformer implements PureViewTransformer {
+
+    private final PureViewTransformer viewTransformer;
+    private final int sampleCount;
+    private BakedCurve dimCurve;
+    private float bakedMaxTranslation;
+    private float bakedPeekedTranslation;
+
+    public BakedViewTransformer(PureViewTransformer viewTransformer) {
+        this(viewTransformer, BakedCurve.DEFAULT_SAMPLE_COUNT);
+    }
+
+    /**
+     * @param sampleCount The number of samples to bake the dim curve with, at least two.
+     */
+    public BakedViewTransformer(PureViewTransformer viewTransformer, int sampleCount) {
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException("At least two samples are required");
+        }
+        this.viewTransformer = viewTransformer;
+        this.sampleCount = sampleCount;
+    }
+
+    @Override
+    public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+        viewTransformer.transformView(translation, maxTranslation, peekedTranslation, parent, view);
+    }
+
+    @Override
+    public float getDimAlpha(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+        if (maxTranslation <= 0) {
+            return viewTransformer.getDimAlpha(translation, maxTranslation, peekedTranslation, parent, view);
+        }
+        if (dimCurve == null || maxTranslation != bakedMaxTranslation || peekedTranslation != bakedPeekedTranslation) {
+            float[] samples = new float[sampleCount];
+            for (int i = 0; i < sampleCount; i++) {
+                float sampleTranslation = maxTranslation * i / (sampleCount - 1);
+                samples[i] = viewTransformer.getDimAlpha(sampleTranslation, maxTranslation, peekedTranslation, parent, view);
+            }
+            dimCurve = new BakedCurve(samples);
+            bakedMaxTranslation = maxTranslation;
+            bakedPeekedTranslation = peekedTranslation;
+        }
+        return dimCurve.getValue(translation / maxTranslation);
+    }
+
+}
@@ -1,18 +1,22 @@
 package com.flipboard.bottomsheet;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
-import android.animation.TimeInterpolator;
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.v4.view.GravityCompat;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.Property;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
@@ -20,49 +24,134 @@ import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
-import android.view.animation.DecelerateInterpolator;
 import android.widget.FrameLayout;
 
+import java.util.ArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import flipboard.bottomsheet.R;
 
-public class BottomSheetLayout extends FrameLayout {
+public class BottomSheetLayout extends FrameLayout implements NestedScrollingParent {
 
-    private static final Property<BottomSheetLayout, Float> SHEET_TRANSLATION = new Property<BottomSheetLayout, Float>(Float.class, "sheetTranslation") {
-        @Override
-        public Float get(BottomSheetLayout object) {
-            return object.sheetTranslation;
+    private Runnable runAfterDismiss;
+
+    private static class BackStackEntry {
+
+        final View sheetView;
+        final ViewTransformer viewTransformer;
+        final int recycleType;
+
+        BackStackEntry(View sheetView, ViewTransformer viewTransformer, int recycleType) {
+            this.sheetView = sheetView;
+            this.viewTransformer = viewTransformer;
+            this.recycleType = recycleType;
         }
 
+    }
+
+    private static class IdentityViewTransformer extends BaseViewTransformer implements PureViewTransformer {
         @Override
-        public void set(BottomSheetLayout object, Float value) {
-            object.setSheetTranslation(value);
+        public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+            // no-op
         }
-    };
-    private Runnable runAfterDismiss;
+    }
 
     /**
-     * Utility class which registers if the animation has been canceled so that subclasses may respond differently in onAnimationEnd
+     * Lets the {@link ScrollTargetIndex} read the sheet view hierarchy.
      */
-    private static class CancelDetectionAnimationListener extends AnimatorListenerAdapter {
+    private static final class ViewNodes implements ScrollTargetIndex.Nodes<View> {
+
+        @Override
+        public int getChildCount(View node) {
+            return node instanceof ViewGroup ? ((ViewGroup) node).getChildCount() : 0;
+        }
+
+        @Override
+        public View getChildAt(View node, int index) {
+            return ((ViewGroup) node).getChildAt(index);
+        }
+
+        @Override
+        public View getParent(View node) {
+            ViewParent parent = node.getParent();
+            return parent instanceof View ? (View) parent : null;
+        }
+
+        @Override
+        public int getLeft(View node) {
+            return node.getLeft();
+        }
+
+        @Override
+        public int getTop(View node) {
+            return node.getTop();
+        }
+
+        @Override
+        public int getWidth(View node) {
+            return node.getWidth();
+        }
+
+        @Override
+        public int getHeight(View node) {
+            return node.getHeight();
+        }
+
+        @Override
+        public int getScrollX(View node) {
+            return node.getScrollX();
+        }
 
-        protected boolean canceled;
+        @Override
+        public int getScrollY(View node) {
+            return node.getScrollY();
+        }
+
+        @Override
+        public boolean isNestedScrollingEnabled(View node) {
+            return ViewCompat.isNestedScrollingEnabled(node);
+        }
 
         @Override
-        public void onAnimationCancel(Animator animation) {
-            canceled = true;
+        public boolean canScrollVertically(View node, int direction) {
+            return node.canScrollVertically(direction);
         }
 
     }
 
-    private static class IdentityViewTransformer extends BaseViewTransformer {
+    /**
+     * Lets the {@link SheetGestureMachine} read the fingers of a touch event, reused for every event.
+     */
+    private static final class MotionEventPointers implements SheetGestureMachine.Pointers {
+
+        private MotionEvent event;
+
+        /**
+         * @param event The event to read, or null to drop the reference to the previous one.
+         */
+        MotionEventPointers wrap(MotionEvent event) {
+            this.event = event;
+            return this;
+        }
+
         @Override
-        public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
-            // no-op
+        public int getPointerId(int pointerIndex) {
+            return event.getPointerId(pointerIndex);
+        }
+
+        @Override
+        public float getX(int pointerIndex) {
+            return event.getX(pointerIndex);
         }
+
+        @Override
+        public float getY(int pointerIndex) {
+            return event.getY(pointerIndex);
+        }
+
     }
 
     public enum State {
@@ -76,14 +165,39 @@ public class BottomSheetLayout extends FrameLayout {
         void onSheetStateChanged(State state);
     }
 
+    /**
+     * How the presented sheet is drawn while it is not expanded, see {@link #setAdaptiveSheetLayerType(boolean)}.
+     */
+    public enum SheetLayerType {
+        /** The sheet is drawn directly */
+        NONE,
+        /** The sheet is drawn into a hardware layer */
+        HARDWARE
+    }
+
+    /** Recycle type of sheets which should be removed when dismissed rather than kept for reuse */
+    public static final int NO_RECYCLE_TYPE = -1;
+
     private static final long ANIMATION_DURATION = 300;
 
+    /** Translation changes smaller than this are not dispatched to a {@link PureViewTransformer} */
+    private static final float TRANSFORM_EPSILON = 0.1f;
+
+    /** Commands which can be coalesced, see {@link #setCoalesceSheetCommands(boolean)} */
+    private static final int COMMAND_NONE = 0;
+    private static final int COMMAND_SHOW = 1;
+    private static final int COMMAND_PEEK = 2;
+    private static final int COMMAND_EXPAND = 3;
+    private static final int COMMAND_DISMISS = 4;
+
+    /** How long to wait for a sheet from a SheetViewFactory before presenting its placeholder */
+    private static final long PLACEHOLDER_DELAY = 100;
+
     private Rect contentClipRect = new Rect();
     private State state = State.HIDDEN;
     private boolean peekOnDismiss = false;
-    private TimeInterpolator animationInterpolator = new DecelerateInterpolator(1.6f);
+    private MotionModel motionModel = new TweenMotion(ANIMATION_DURATION, BakedInterpolator.DECELERATE);
     public boolean bottomSheetOwnsTouch;
-    private boolean sheetViewOwnsTouch;
     private float sheetTranslation;
     private VelocityTracker velocityTracker;
     private float minFlingVelocity;
@@ -92,17 +206,183 @@ public class BottomSheetLayout extends FrameLayout {
     private ViewTransformer viewTransformer;
     private boolean shouldDimContentView = true;
     private boolean useHardwareLayerWhileAnimating = true;
-    private Animator currentAnimator;
+    private boolean adaptiveSheetLayerType = false;
+    private boolean useContentLayerWhileAnimating = true;
+    /** The content view while it is in a hardware layer set up by this layout, null otherwise */
+    private View layeredContentView;
+    private final SheetLayerPolicy sheetLayerPolicy = new SheetLayerPolicy();
+    /** Schedules the animations and every other piece of work which is deferred to the next frame */
+    private FrameClock frameClock = FrameClock.SYSTEM;
+    private final SheetTranslationAnimator sheetAnimator = new SheetTranslationAnimator(this, new SheetTranslationAnimator.Callback() {
+        @Override
+        public void onAnimationUpdate(float translation) {
+            setSheetTranslation(translation);
+        }
+
+        @Override
+        public void onAnimationEnd(boolean canceled) {
+            onSheetTransitionEnd();
+            if (!canceled) {
+                // A canceled animation is either followed by another one or by the finger dragging the sheet.
+                setContentLayerEnabled(false);
+            }
+            View sheetView = dismissingSheetView;
+            dismissingSheetView = null;
+            if (!canceled && sheetView != null) {
+                onDismissAnimationEnd(sheetView);
+            }
+        }
+    });
+    /** The sheet being animated out by dismissSheet(), kept so the shared animator callback can remove it */
+    private View dismissingSheetView;
     private CopyOnWriteArraySet<OnSheetDismissedListener> onSheetDismissedListeners = new CopyOnWriteArraySet<>();
     private CopyOnWriteArraySet<OnSheetStateChangeListener> onSheetStateChangeListeners = new CopyOnWriteArraySet<>();
-    private OnLayoutChangeListener sheetViewOnLayoutChangeListener;
-    private View dimView;
+    /** Keeps the presented sheet anchored to the bottom of the screen when its height changes */
+    private final OnLayoutChangeListener sheetViewOnLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View sheetView, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            int newSheetViewHeight = sheetView.getMeasuredHeight();
+            invalidateSheetGeometry();
+            if (state != State.HIDDEN) {
+                // The sheet can no longer be in the expanded state if it has shrunk
+                if (newSheetViewHeight < currentSheetViewHeight) {
+                    if (state == State.EXPANDED) {
+                        setState(State.PEEKED);
+                    }
+                    setSheetTranslation(newSheetViewHeight);
+                } else if (currentSheetViewHeight > 0 && newSheetViewHeight > currentSheetViewHeight && state == State.PEEKED) {
+                    if (newSheetViewHeight == getMaxSheetTranslation()) {
+                        setState(State.EXPANDED);
+                    }
+                    setSheetTranslation(newSheetViewHeight);
+                }
+            }
+            currentSheetViewHeight = newSheetViewHeight;
+        }
+    };
+    /** The presented sheet, the layout may also hold invisible sheets parked for reuse */
+    private View sheetView;
+    private int sheetRecycleType = NO_RECYCLE_TYPE;
+    private final SparseArray<View> recycledSheetViews = new SparseArray<>();
+    /** Sheets covered by the presented sheet, see {@link #pushSheetView(View, ViewTransformer)} */
+    private final ArrayList<BackStackEntry> sheetBackStack = new ArrayList<>();
+    /** The sheet being replaced while a cross transition is running */
+    private View outgoingSheetView;
+    private int outgoingRecycleType;
+    private boolean removeOutgoingSheetView;
+    /** The upper of the two sheets in a cross transition, which is the one being faded */
+    private View fadingSheetView;
+    private boolean fadingSheetLayered;
+    private boolean fadingIn;
+    private final MotionModel crossFadeMotion = new TweenMotion(ANIMATION_DURATION, null);
+    private final SheetTranslationAnimator crossFadeAnimator = new SheetTranslationAnimator(this, new SheetTranslationAnimator.Callback() {
+        @Override
+        public void onAnimationUpdate(float progress) {
+            fadingSheetView.setAlpha(fadingIn ? progress : 1 - progress);
+        }
+
+        @Override
+        public void onAnimationEnd(boolean canceled) {
+            onCrossTransitionEnd();
+        }
+    });
+    /** Paint used to dim the content view, only created once dimming is actually applied */
+    private Paint dimPaint;
+    private boolean coalesceDragUpdates = false;
+    private boolean resampleDragTouches = false;
+    private final TouchResampler touchResampler = new TouchResampler();
+    private boolean fastPresent = false;
+
+    private boolean coalesceSheetCommands = false;
+    private int pendingCommand = COMMAND_NONE;
+    private View pendingSheetView;
+    private ViewTransformer pendingViewTransformer;
+    private int pendingRecycleType;
+    private final Runnable applyPendingSheetCommand = new Runnable() {
+        @Override
+        public void run() {
+            int command = pendingCommand;
+            View sheetView = pendingSheetView;
+            ViewTransformer viewTransformer = pendingViewTransformer;
+            clearPendingSheetCommand();
+            switch (command) {
+                case COMMAND_SHOW:
+                    cancelPendingSheetFactory();
+                    presentSheetView(sheetView, viewTransformer, pendingRecycleType);
+                    break;
+                case COMMAND_PEEK:
+                    if (getSheetView() != null) {
+                        peekSheet(0);
+                    }
+                    break;
+                case COMMAND_EXPAND:
+                    if (getSheetView() != null) {
+                        expandSheet(0);
+                    }
+                    break;
+                case COMMAND_DISMISS:
+                    dismissSheetNow();
+                    break;
+            }
+        }
+    };
+
+    /** Incremented to discard sheets from a SheetViewFactory which were superseded before being ready */
+    private int sheetFactoryRequest;
+    private Runnable pendingPlaceholder;
+    private View presentedPlaceholder;
+    /** Hands sheets from a SheetViewFactory back to the main thread, which works whether or not this layout is attached */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /** A sheet from a SheetViewFactory and the specs it was measured with on the inflation thread */
+    private View premeasuredSheetView;
+    private int premeasuredWidthSpec;
+    private int premeasuredHeightSpec;
+    private boolean hasPendingDragTranslation;
+    private float pendingDragTranslation;
+    private final Runnable applyPendingDragTranslation = new Runnable() {
+        @Override
+        public void run() {
+            if (hasPendingDragTranslation) {
+                if (resampleDragTouches && gestureMachine.isDragging()) {
+                    // Inside a frame callback the clock reads the time of the frame being produced, so the sheet is
+                    // placed where the finger is estimated to be when that frame is shown.
+                    setSheetTranslation(gestureMachine.getDragTranslation(touchResampler.resample(frameClock.getFrameTimeMillis())));
+                } else {
+                    setSheetTranslation(pendingDragTranslation);
+                }
+            }
+        }
+    };
+    private final ScrollTargetIndex<View> scrollTargetIndex = new ScrollTargetIndex<>(new ViewNodes());
+    private final SnapPoints snapPoints = new SnapPoints();
+    private final ViewTreeObserver.OnGlobalLayoutListener scrollTargetIndexInvalidator = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            // Views may have been added, removed or resized which can change which of them are scrollable.
+            scrollTargetIndex.invalidate();
+        }
+    };
+    private final NestedScrollingParentHelper nestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+    private boolean sheetMovedByNestedScroll;
     private boolean interceptContentTouch = true;
     private int currentSheetViewHeight;
     private boolean hasIntercepted;
     private float peekKeyline;
     private float peek;
 
+    /** Sheet geometry snapshot read by the per frame paths, see {@link #invalidateSheetGeometry()} */
+    private boolean sheetGeometryValid;
+    private float cachedMaxSheetTranslation;
+    private float cachedPeekSheetTranslation;
+
+    /** The arguments of the last dispatch to a pure view transformer, see {@link #isTransformUpToDate} */
+    private boolean transformMemoValid;
+    private ViewTransformer memoViewTransformer;
+    private View memoContentView;
+    private float memoTranslation;
+    private float memoMaxTranslation;
+    private float memoPeekTranslation;
+
     /** Some values we need to manage width on tablets */
     private int screenWidth = 0;
     private final boolean isTablet = getResources().getBoolean(R.bool.bottomsheet_is_tablet);
@@ -110,17 +390,45 @@ public class BottomSheetLayout extends FrameLayout {
     private int sheetStartX = 0;
     private int sheetEndX = 0;
 
-    /** Snapshot of the touch's y position on a down event */
-    private float downY;
+    /** Turns the touches of the pointer driving the drag into commands, see {@link #runGestureCommands} */
+    private SheetGestureMachine gestureMachine;
+    private final SheetGestureMachine.Host gestureMachineHost = new SheetGestureMachine.Host() {
+        @Override
+        public float getTranslation() {
+            return sheetTranslation;
+        }
+
+        @Override
+        public float getMaxTranslation() {
+            return getMaxSheetTranslation();
+        }
+
+        @Override
+        public float getPeekTranslation() {
+            return getPeekSheetTranslation();
+        }
+
+        @Override
+        public boolean isExpanded() {
+            return state == State.EXPANDED;
+        }
 
-    /** Snapshot of the touch's x position on a down event */
-    private float downX;
+        @Override
+        public boolean canScrollUp() {
+            return scrollTargetIndex.canScrollUp();
+        }
 
-    /** Snapshot of the sheet's translation at the time of the last down event */
-    private float downSheetTranslation;
+        @Override
+        public boolean isOutsideSheet(float x, float y) {
+            return y < getHeight() - sheetTranslation || !isXInSheet(x);
+        }
+    };
+    private final MotionEventPointers motionEventPointers = new MotionEventPointers();
 
-    /** Snapshot of the sheet's state at the time of the last down event */
-    private State downState;
+    /** Velocity, target and kind of the animation caught by the last down event */
+    private float caughtVelocity;
+    private float caughtTarget;
+    private boolean caughtDismiss;
 
     public BottomSheetLayout(Context context) {
         super(context);
@@ -146,11 +454,7 @@ public class BottomSheetLayout extends FrameLayout {
         ViewConfiguration viewConfiguration = ViewConfiguration.get(getContext());
         minFlingVelocity = viewConfiguration.getScaledMinimumFlingVelocity();
         touchSlop = viewConfiguration.getScaledTouchSlop();
-
-        dimView = new View(getContext());
-        dimView.setBackgroundColor(Color.BLACK);
-        dimView.setAlpha(0);
-        dimView.setVisibility(INVISIBLE);
+        gestureMachine = new SheetGestureMachine(gestureMachineHost, snapPoints, touchSlop, minFlingVelocity);
 
         setFocusableInTouchMode(true);
 
@@ -198,20 +502,174 @@ public class BottomSheetLayout extends FrameLayout {
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         velocityTracker = VelocityTracker.obtain();
+        getViewTreeObserver().addOnGlobalLayoutListener(scrollTargetIndexInvalidator);
     }
 
     @Override
+    @SuppressWarnings("deprecation")
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         velocityTracker.clear();
+        getViewTreeObserver().removeGlobalOnLayoutListener(scrollTargetIndexInvalidator);
+        scrollTargetIndex.clear();
+        hasPendingDragTranslation = false;
+        frameClock.removeFrameCallback(this, applyPendingDragTranslation);
+        finishCrossTransition();
         cancelCurrentAnimation();
+        setContentLayerEnabled(false);
+        clearPendingSheetCommand();
+    }
+
+    @Override
+    protected void measureChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed, int parentHeightMeasureSpec, int heightUsed) {
+        if (isHiddenSheetView(child)) {
+            // Not shown, so there is no need to measure it. Without a new measurement laying it out is cheap as well.
+            // It is measured again when it is shown, see showHiddenSheetView().
+            return;
+        }
+        super.measureChildWithMargins(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
+    }
+
+    /**
+     * @return Whether child is a sheet kept hidden by this layout, parked for reuse or pushed below the presented sheet.
+     */
+    private boolean isHiddenSheetView(View child) {
+        if (child == sheetView || child.getVisibility() != INVISIBLE) {
+            return false;
+        }
+        if (recycledSheetViews.indexOfValue(child) >= 0) {
+            return true;
+        }
+        for (int i = 0, size = sheetBackStack.size(); i < size; i++) {
+            if (sheetBackStack.get(i).sheetView == child) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Show a sheet kept hidden by this layout. Layout passes skipped measuring it while it was hidden, so it is
+     * measured and laid out again against the current size of this layout. Unless it or this layout changed size in the
+     * meantime that measurement is cheap, and it does not request a layout pass.
+     */
+    private void showHiddenSheetView(View sheetView) {
+        sheetView.setVisibility(VISIBLE);
+        sheetView.forceLayout();
+        layoutSheetNow(sheetView);
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        // Invalidate before laying out children as the sheet's layout change listener reads the geometry.
+        invalidateSheetGeometry();
         super.onLayout(changed, left, top, right, bottom);
-        int bottomClip = (int) (getHeight() - Math.ceil(sheetTranslation));
-        this.contentClipRect.set(0, 0, getWidth(), bottomClip);
+        updateContentClipRect();
+    }
+
+    @Override
+    protected boolean drawChild(@NonNull Canvas canvas, View child, long drawingTime) {
+        if (adaptiveSheetLayerType && child == sheetView && isAnimating()) {
+            return drawMovingSheet(canvas, child, drawingTime);
+        }
+        if (child != getContentView()) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        boolean occluded = isSheetOccludingContent();
+        if (occluded && contentClipRect.isEmpty()) {
+            // The sheet covers the content completely, don't draw it at all.
+            return false;
+        }
+        int saveCount = canvas.save();
+        if (occluded) {
+            // Don't draw the parts of the content and dim which are hidden behind the sheet.
+            canvas.clipRect(contentClipRect);
+        }
+        boolean result = super.drawChild(canvas, child, drawingTime);
+        if (shouldDimContentView && dimPaint != null && dimPaint.getAlpha() > 0) {
+            canvas.drawRect(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getHeight() - getPaddingBottom(), dimPaint);
+        }
+        canvas.restoreToCount(saveCount);
+        return result;
+    }
+
+    /**
+     * Draw the animating sheet according to the layer policy, sampling how often it is invalidated while doing so.
+     */
+    private boolean drawMovingSheet(Canvas canvas, View sheetView, long drawingTime) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            // There is no way to tell whether the sheet was invalidated, so the policy sticks with its initial choice.
+            return super.drawChild(canvas, sheetView, drawingTime);
+        }
+        sheetLayerPolicy.onFrameDrawn(isViewDirty(sheetView));
+        return super.drawChild(canvas, sheetView, drawingTime);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static boolean isViewDirty(View view) {
+        return view.isDirty();
+    }
+
+    /**
+     * Called whenever the sheet animation ends or is canceled. Applies the layer type picked by the layer policy from
+     * what was sampled during the animation.
+     */
+    private void onSheetTransitionEnd() {
+        if (!adaptiveSheetLayerType) {
+            return;
+        }
+        if (sheetLayerPolicy.onTransitionEnd() && sheetView != null && dismissingSheetView == null
+                && (state == State.PEEKED || state == State.PREPARING)) {
+            setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
+        }
+    }
+
+    /**
+     * The presented sheet changed, start over measuring which layer type suits it.
+     */
+    private void resetSheetLayerPolicy() {
+        sheetLayerPolicy.reset();
+    }
+
+    /**
+     * Set the alpha of the dim drawn on top of the content view, invalidating this layout if it changed.
+     */
+    private void setDimAlpha(float dimAlpha) {
+        int alpha = Math.round(Math.max(0, Math.min(1, dimAlpha)) * 255);
+        if (dimPaint == null) {
+            dimPaint = new Paint();
+            dimPaint.setColor(Color.BLACK);
+            dimPaint.setAlpha(0);
+        }
+        if (dimPaint.getAlpha() != alpha) {
+            dimPaint.setAlpha(alpha);
+            invalidate();
+        }
+    }
+
+    /**
+     * @return Whether the presented sheet hides everything below its top edge. This is only the case for opaque
+     * sheets spanning the full width of this layout.
+     */
+    private boolean isSheetOccludingContent() {
+        View sheetView = getSheetView();
+        return sheetView != null && sheetView.isOpaque() && sheetView.getLeft() <= 0 && sheetView.getRight() >= getWidth();
+    }
+
+    /**
+     * Update the area of the content view which is not covered by the sheet.
+     *
+     * @return Whether the area changed.
+     */
+    private boolean updateContentClipRect() {
+        View sheetView = getSheetView();
+        int sheetTop = sheetView != null ? sheetView.getTop() : 0;
+        int bottomClip = (int) (sheetTop + getHeight() - Math.ceil(sheetTranslation));
+        if (contentClipRect.left == 0 && contentClipRect.top == 0 && contentClipRect.right == getWidth() && contentClipRect.bottom == bottomClip) {
+            return false;
+        }
+        contentClipRect.set(0, 0, getWidth(), bottomClip);
+        return true;
     }
 
     @Override
@@ -229,10 +687,13 @@ public class BottomSheetLayout extends FrameLayout {
                     dispatcherState.handleUpEvent(event);
                 }
                 if (isSheetShowing() && event.isTracking() && !event.isCanceled()) {
-                    if (state == State.EXPANDED && peekOnDismiss) {
-                        peekSheet();
+                    if (!sheetBackStack.isEmpty()) {
+                        popSheetView();
+                    } else if (state == State.EXPANDED && peekOnDismiss) {
+                        clearPendingSheetCommand();
+                        peekSheet(0);
                     } else {
-                        dismissSheet();
+                        dismissSheetNow();
                     }
                     return true;
                 }
@@ -242,31 +703,78 @@ public class BottomSheetLayout extends FrameLayout {
     }
 
     private void setSheetTranslation(float newTranslation) {
-        this.sheetTranslation = Math.min(newTranslation, getMaxSheetTranslation());
-        int bottomClip = (int) (getHeight() - Math.ceil(sheetTranslation));
-        this.contentClipRect.set(0, 0, getWidth(), bottomClip);
-        getSheetView().setTranslationY(getHeight() - sheetTranslation);
-        transformView(sheetTranslation);
+        // Any direct update supersedes a drag translation waiting for the next frame.
+        hasPendingDragTranslation = false;
+        ensureSheetGeometry();
+        float maxSheetTranslation = cachedMaxSheetTranslation;
+        float peekSheetTranslation = cachedPeekSheetTranslation;
+        this.sheetTranslation = Math.min(newTranslation, maxSheetTranslation);
+        int height = getHeight();
+        if (updateContentClipRect() && isSheetOccludingContent()) {
+            // Moving the sheet does not redraw this layout by itself, which is needed to apply the new clip.
+            invalidate();
+        }
+        getSheetView().setTranslationY(height - sheetTranslation);
+        View contentView = getContentView();
+        if (isTransformUpToDate(contentView, maxSheetTranslation, peekSheetTranslation)) {
+            return;
+        }
+        transformView(sheetTranslation, maxSheetTranslation, peekSheetTranslation, contentView);
         if (shouldDimContentView) {
-            float dimAlpha = getDimAlpha(sheetTranslation);
-            dimView.setAlpha(dimAlpha);
-            dimView.setVisibility(dimAlpha > 0 ? VISIBLE : INVISIBLE);
+            float dimAlpha = getDimAlpha(sheetTranslation, maxSheetTranslation, peekSheetTranslation, contentView);
+            setDimAlpha(dimAlpha);
+        }
+    }
+
+    /**
+     * Check whether dispatching the current translation to the active view transformer can be skipped. This is only the
+     * case for a {@link PureViewTransformer} which was last called with the same content view and geometry, and a translation
+     * within {@link #TRANSFORM_EPSILON} of the current one. Otherwise the current arguments are remembered for the next check.
+     */
+    private boolean isTransformUpToDate(View contentView, float maxSheetTranslation, float peekSheetTranslation) {
+        ViewTransformer activeViewTransformer = viewTransformer != null ? viewTransformer : defaultViewTransformer;
+        if (transformMemoValid
+                && activeViewTransformer == memoViewTransformer
+                && contentView == memoContentView
+                && maxSheetTranslation == memoMaxTranslation
+                && peekSheetTranslation == memoPeekTranslation
+                && Math.abs(sheetTranslation - memoTranslation) < TRANSFORM_EPSILON) {
+            return true;
+        }
+        transformMemoValid = activeViewTransformer instanceof PureViewTransformer;
+        memoViewTransformer = activeViewTransformer;
+        memoContentView = contentView;
+        memoTranslation = sheetTranslation;
+        memoMaxTranslation = maxSheetTranslation;
+        memoPeekTranslation = peekSheetTranslation;
+        return false;
+    }
+
+    /**
+     * Defer a drag translation to the next animation frame. Only the latest translation requested before the frame
+     * is applied, so several move events arriving within one frame result in a single translation and transform.
+     */
+    private void setSheetTranslationOnNextFrame(float newTranslation) {
+        pendingDragTranslation = newTranslation;
+        if (!hasPendingDragTranslation) {
+            hasPendingDragTranslation = true;
+            frameClock.postFrameCallback(this, applyPendingDragTranslation);
         }
     }
 
-    private void transformView(float sheetTranslation) {
+    private void transformView(float sheetTranslation, float maxSheetTranslation, float peekSheetTranslation, View contentView) {
         if (viewTransformer != null) {
-            viewTransformer.transformView(sheetTranslation, getMaxSheetTranslation(), getPeekSheetTranslation(), this, getContentView());
+            viewTransformer.transformView(sheetTranslation, maxSheetTranslation, peekSheetTranslation, this, contentView);
         } else if (defaultViewTransformer != null) {
-            defaultViewTransformer.transformView(sheetTranslation, getMaxSheetTranslation(), getPeekSheetTranslation(), this, getContentView());
+            defaultViewTransformer.transformView(sheetTranslation, maxSheetTranslation, peekSheetTranslation, this, contentView);
         }
     }
 
-    private float getDimAlpha(float sheetTranslation) {
+    private float getDimAlpha(float sheetTranslation, float maxSheetTranslation, float peekSheetTranslation, View contentView) {
         if (viewTransformer != null) {
-            return viewTransformer.getDimAlpha(sheetTranslation, getMaxSheetTranslation(), getPeekSheetTranslation(), this, getContentView());
+            return viewTransformer.getDimAlpha(sheetTranslation, maxSheetTranslation, peekSheetTranslation, this, contentView);
         } else if (defaultViewTransformer != null) {
-            return defaultViewTransformer.getDimAlpha(sheetTranslation, getMaxSheetTranslation(), getPeekSheetTranslation(), this, getContentView());
+            return defaultViewTransformer.getDimAlpha(sheetTranslation, maxSheetTranslation, peekSheetTranslation, this, contentView);
         }
         return 0;
     }
@@ -275,8 +783,15 @@ public class BottomSheetLayout extends FrameLayout {
         boolean downAction = ev.getActionMasked() == MotionEvent.ACTION_DOWN;
         if (downAction) {
             hasIntercepted = false;
+            if (isSheetShowing()) {
+                scrollTargetIndex.resolveTargets(getSheetView(), ev.getX(), ev.getY() + (sheetTranslation - getHeight()));
+            }
         }
-        if (interceptContentTouch || (ev.getY() > getHeight() - sheetTranslation && isXInSheet(ev.getX()))) {
+        boolean inSheet = ev.getY() > getHeight() - sheetTranslation && isXInSheet(ev.getX());
+        if (inSheet && downAction && isNestedScrollingTargetUnderTouch()) {
+            // Dispatch normally, the content reports its scrolling through onNestedPreScroll() and friends.
+            hasIntercepted = false;
+        } else if (interceptContentTouch || inSheet) {
             hasIntercepted = downAction && isSheetShowing();
         } else {
             hasIntercepted = false;
@@ -284,153 +799,281 @@ public class BottomSheetLayout extends FrameLayout {
         return hasIntercepted;
     }
 
+    /**
+     * @return Whether the content of the sheet under the touch resolved last scrolls through nested scrolling, and the
+     * sheet can currently follow such scrolling, see {@link #onStartNestedScroll(View, View, int)}.
+     */
+    private boolean isNestedScrollingTargetUnderTouch() {
+        return (state == State.PEEKED || state == State.EXPANDED) && !isAnimating()
+                && scrollTargetIndex.hasNestedScrollingTarget();
+    }
+
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent event) {
         if (!isSheetShowing()) {
             return false;
         }
-        if (isAnimating()) {
+        if (isAnimating() && (event.getActionMasked() != MotionEvent.ACTION_DOWN || runAfterDismiss != null)) {
+            // Only a new touch may catch a running animation, and never while the sheet is being replaced by another one.
             return false;
         }
         if (!hasIntercepted) {
             return onInterceptTouchEvent(event);
         }
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            // Snapshot the state of things when finger touches the screen.
-            // This allows us to calculate deltas without losing precision which we would have if we calculated deltas based on the previous touch.
-            bottomSheetOwnsTouch = false;
-            sheetViewOwnsTouch = false;
-            downY = event.getY();
-            downX = event.getX();
-            downSheetTranslation = sheetTranslation;
-            downState = state;
+        boolean caughtAnimation = false;
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            caughtAnimation = isAnimating();
+            if (caughtAnimation) {
+                catchAnimatingSheet();
+            }
             velocityTracker.clear();
+            touchResampler.reset();
+        } else if (event.getActionMasked() == MotionEvent.ACTION_POINTER_DOWN) {
+            // The finger which touched down last drives the sheet from where it currently is.
+            gestureMachine.onPointerDown(motionEventPointers.wrap(event), event.getActionIndex());
+            touchResampler.reset();
+        } else if (event.getActionMasked() == MotionEvent.ACTION_POINTER_UP) {
+            // If the driving finger was lifted, the drag is handed over to one of the remaining fingers.
+            if (gestureMachine.onPointerUp(motionEventPointers.wrap(event), event.getActionIndex())) {
+                touchResampler.reset();
+            }
         }
+        motionEventPointers.wrap(null);
+        int pointerIndex = Math.max(0, event.findPointerIndex(gestureMachine.getActivePointerId()));
+        // addMovement() also consumes the historical samples batched into this event, so coalescing the
+        // translation updates below does not lose any precision for the release velocity.
         velocityTracker.addMovement(event);
+        if (resampleDragTouches) {
+            touchResampler.addSamples(event, pointerIndex);
+        }
 
-        // The max translation is a hard limit while the min translation is where we start dragging more slowly and allow the sheet to be dismissed.
-        float maxSheetTranslation = getMaxSheetTranslation();
-        float peekSheetTranslation = getPeekSheetTranslation();
-
-        float deltaY = downY - event.getY();
-        float deltaX = downX - event.getX();
-
-        if (!bottomSheetOwnsTouch && !sheetViewOwnsTouch) {
-            bottomSheetOwnsTouch = Math.abs(deltaY) > touchSlop;
-            sheetViewOwnsTouch = Math.abs(deltaX) > touchSlop;
-
-            if (bottomSheetOwnsTouch) {
-                if (state == State.PEEKED) {
-                    MotionEvent cancelEvent = MotionEvent.obtain(event);
-                    cancelEvent.offsetLocation(0, sheetTranslation - getHeight());
-                    cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
-                    getSheetView().dispatchTouchEvent(cancelEvent);
-                    cancelEvent.recycle();
-                }
-
-                sheetViewOwnsTouch = false;
-                downY = event.getY();
-                downX = event.getX();
-                deltaY = 0;
-                deltaX = 0;
+        float x = event.getX(pointerIndex);
+        float y = event.getY(pointerIndex);
+        int commands;
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // A sheet caught mid animation is owned by the finger right away as it is already moving.
+            commands = gestureMachine.onDown(event.getPointerId(0), x, y, caughtAnimation);
+        } else {
+            float releaseVelocity = 0;
+            if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+                velocityTracker.computeCurrentVelocity(1000);
+                // Translation is counted from the bottom so it moves in the opposite direction of the finger.
+                releaseVelocity = -velocityTracker.getYVelocity(gestureMachine.getActivePointerId());
             }
+            commands = gestureMachine.onTouch(event.getActionMasked(), x, y, releaseVelocity);
         }
+        bottomSheetOwnsTouch = gestureMachine.isDragging();
+        runGestureCommands(event, commands);
+        int action = event.getActionMasked();
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && !isAnimating()) {
+            // The gesture ended without a transition which would take the content layer down once settled.
+            setContentLayerEnabled(false);
+        }
+        return true;
+    }
 
-        // This is not the actual new sheet translation but a first approximation it will be adjusted to account for max and min translations etc.
-        float newSheetTranslation = downSheetTranslation + deltaY;
-
-        if (bottomSheetOwnsTouch) {
-            // If we are scrolling down and the sheet cannot scroll further, go out of expanded mode.
-            boolean scrollingDown = deltaY < 0;
-            boolean canScrollUp = canScrollUp(getSheetView(), event.getX(), event.getY() + (sheetTranslation - getHeight()));
-            if (state == State.EXPANDED && scrollingDown && !canScrollUp) {
-                // Reset variables so deltas are correctly calculated from the point at which the sheet was 'detached' from the top.
-                downY = event.getY();
-                downSheetTranslation = sheetTranslation;
-                velocityTracker.clear();
-                setState(State.PEEKED);
-                setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
-                newSheetTranslation = sheetTranslation;
-
-                // Dispatch a cancel event to the sheet to make sure its touch handling is cleaned up nicely.
-                MotionEvent cancelEvent = MotionEvent.obtain(event);
-                cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
-                getSheetView().dispatchTouchEvent(cancelEvent);
-                cancelEvent.recycle();
+    /**
+     * Carry out the commands the gesture machine answered a touch event with, in the order they are declared in.
+     */
+    private void runGestureCommands(MotionEvent event, int commands) {
+        if ((commands & SheetGestureMachine.COMMAND_CANCEL_SHEET_TOUCH) != 0) {
+            MotionEvent cancelEvent = MotionEvent.obtain(event);
+            cancelEvent.offsetLocation(0, sheetTranslation - getHeight());
+            cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
+            getSheetView().dispatchTouchEvent(cancelEvent);
+            cancelEvent.recycle();
+        }
+        if ((commands & SheetGestureMachine.COMMAND_DETACH_FROM_TOP) != 0) {
+            velocityTracker.clear();
+            setState(State.PEEKED);
+            setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
+
+            // Dispatch a cancel event to the sheet to make sure its touch handling is cleaned up nicely.
+            MotionEvent cancelEvent = MotionEvent.obtain(event);
+            cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
+            getSheetView().dispatchTouchEvent(cancelEvent);
+            cancelEvent.recycle();
+        }
+        if ((commands & SheetGestureMachine.COMMAND_ATTACH_TO_TOP) != 0) {
+            setSheetTranslation(getMaxSheetTranslation());
+
+            // Dispatch a down event to the sheet to make sure its touch handling is initiated correctly.
+            MotionEvent downEvent = MotionEvent.obtain(event);
+            downEvent.setAction(MotionEvent.ACTION_DOWN);
+            getSheetView().dispatchTouchEvent(downEvent);
+            downEvent.recycle();
+            scrollTargetIndex.resolveTargets(getSheetView(), event.getX(), event.getY() + (sheetTranslation - getHeight()));
+            setState(State.EXPANDED);
+            setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
+            setContentLayerEnabled(false);
+        }
+        if ((commands & SheetGestureMachine.COMMAND_FORWARD_TO_SHEET) != 0) {
+            forwardTouchToSheet(event);
+        }
+        if ((commands & SheetGestureMachine.COMMAND_TRANSLATE) != 0) {
+            // Only a moving sheet transforms the content, an expanded sheet scrolling its own content leaves it alone.
+            setContentLayerEnabled(true);
+            if ((coalesceDragUpdates || resampleDragTouches) && event.getActionMasked() == MotionEvent.ACTION_MOVE) {
+                // A resampled position is only known once the frame it is drawn in starts, see applyPendingDragTranslation.
+                setSheetTranslationOnNextFrame(gestureMachine.getTranslation());
+            } else {
+                setSheetTranslation(gestureMachine.getTranslation());
             }
-
-            // If we are at the top of the view we should go into expanded mode.
-            if (state == State.PEEKED && newSheetTranslation > maxSheetTranslation) {
-                setSheetTranslation(maxSheetTranslation);
-
-                // Dispatch a down event to the sheet to make sure its touch handling is initiated correctly.
-                newSheetTranslation = Math.min(maxSheetTranslation, newSheetTranslation);
-                MotionEvent downEvent = MotionEvent.obtain(event);
-                downEvent.setAction(MotionEvent.ACTION_DOWN);
-                getSheetView().dispatchTouchEvent(downEvent);
-                downEvent.recycle();
-                setState(State.EXPANDED);
-                setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
+        }
+        if ((commands & SheetGestureMachine.COMMAND_SETTLE) != 0) {
+            snapSheet(gestureMachine.getTargetTranslation(), gestureMachine.getVelocity());
+        }
+        if ((commands & SheetGestureMachine.COMMAND_DISMISS) != 0) {
+            dismissSheet(null, gestureMachine.getVelocity());
+        }
+        if ((commands & SheetGestureMachine.COMMAND_RESUME) != 0) {
+            resumeCaughtAnimation();
+        }
+        if ((commands & SheetGestureMachine.COMMAND_TOUCH_OUTSIDE) != 0) {
+            // If the user clicks outside of the bottom sheet area we should dismiss the bottom sheet.
+            if (interceptContentTouch) {
+                dismissSheetNow();
+            } else {
+                forwardTouchToSheet(event);
             }
+        }
+    }
 
-            if (state == State.EXPANDED) {
-                // Dispatch the touch to the sheet if we are expanded so it can handle its own internal scrolling.
-                event.offsetLocation(0, sheetTranslation - getHeight());
-                getSheetView().dispatchTouchEvent(event);
-            } else {
-                // Make delta less effective when sheet is below the minimum translation.
-                // This makes it feel like scrolling in jello which gives the user an indication that the sheet will be dismissed if they let go.
-                if (newSheetTranslation < peekSheetTranslation) {
-                    newSheetTranslation = peekSheetTranslation - (peekSheetTranslation - newSheetTranslation) / 4f;
-                }
+    private void forwardTouchToSheet(MotionEvent event) {
+        if (bottomSheetOwnsTouch) {
+            // The sheet is expanded and handles its own internal scrolling.
+            event.offsetLocation(0, sheetTranslation - getHeight());
+        } else {
+            event.offsetLocation(isTablet ? getX() - sheetStartX : 0, sheetTranslation - getHeight());
+        }
+        getSheetView().dispatchTouchEvent(event);
+    }
 
-                setSheetTranslation(newSheetTranslation);
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        // While this layout drives the gesture itself the sheet only receives touches forwarded to it.
+        return !hasIntercepted
+                && child == getSheetView()
+                && (state == State.PEEKED || state == State.EXPANDED)
+                && !isAnimating()
+                && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
 
-                if (event.getAction() == MotionEvent.ACTION_CANCEL) {
-                    // If touch is canceled, go back to previous state, a canceled touch should never commit an action.
-                    if (downState == State.EXPANDED) {
-                        expandSheet();
-                    } else {
-                        peekSheet();
-                    }
-                }
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int nestedScrollAxes) {
+        nestedScrollingParentHelper.onNestedScrollAccepted(child, target, nestedScrollAxes);
+        sheetMovedByNestedScroll = false;
+    }
 
-                if (event.getAction() == MotionEvent.ACTION_UP) {
-                    if (newSheetTranslation < peekSheetTranslation) {
-                        dismissSheet();
-                    } else {
-                        // If touch is released, go to a new state depending on velocity.
-                        // If the velocity is not high enough we use the position of the sheet to determine the new state.
-                        velocityTracker.computeCurrentVelocity(1000);
-                        float velocityY = velocityTracker.getYVelocity();
-                        if (Math.abs(velocityY) < minFlingVelocity) {
-                            if (sheetTranslation > getHeight() / 2) {
-                                expandSheet();
-                            } else {
-                                peekSheet();
-                            }
-                        } else {
-                            if (velocityY < 0) {
-                                expandSheet();
-                            } else {
-                                peekSheet();
-                            }
-                        }
-                    }
-                }
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        float maxSheetTranslation = getMaxSheetTranslation();
+        if (dy > 0 && sheetTranslation < maxSheetTranslation) {
+            // Pull the sheet up before the content starts scrolling.
+            int consumedY = Math.min(dy, (int) Math.ceil(maxSheetTranslation - sheetTranslation));
+            translateSheetByNestedScroll(consumedY);
+            consumed[1] = consumedY;
+        } else if (dy < 0 && !ViewCompat.canScrollVertically(target, -1)) {
+            // The content is scrolled to the top, so pull the sheet down instead.
+            translateSheetByNestedScroll(dy);
+            consumed[1] = dy;
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        if (dyUnconsumed < 0) {
+            translateSheetByNestedScroll(dyUnconsumed);
+        }
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (!sheetMovedByNestedScroll || sheetTranslation >= getMaxSheetTranslation()) {
+            // The sheet is fully expanded, let the content fling.
+            return false;
+        }
+        // A positive fling velocity scrolls the content down which moves the sheet up.
+        settleAfterNestedScroll(velocityY);
+        return true;
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return false;
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        nestedScrollingParentHelper.onStopNestedScroll(target);
+        if (sheetMovedByNestedScroll && !isAnimating()) {
+            settleAfterNestedScroll(0);
+        }
+        sheetMovedByNestedScroll = false;
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return nestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    private void translateSheetByNestedScroll(int dy) {
+        float peekSheetTranslation = getPeekSheetTranslation();
+        // Moving the sheet below the peeked translation feels like scrolling in jello, the same as when dragging the sheet itself.
+        float delta = dy < 0 && sheetTranslation < peekSheetTranslation ? dy / 4f : dy;
+        setSheetTranslation(sheetTranslation + delta);
+        sheetMovedByNestedScroll = true;
+        if (sheetTranslation >= getMaxSheetTranslation()) {
+            if (state != State.EXPANDED) {
+                setState(State.EXPANDED);
+                setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
+                setContentLayerEnabled(false);
             }
         } else {
-            // If the user clicks outside of the bottom sheet area we should dismiss the bottom sheet.
-            boolean touchOutsideBottomSheet = event.getY() < getHeight() - sheetTranslation || !isXInSheet(event.getX());
-            if (event.getAction() == MotionEvent.ACTION_UP && touchOutsideBottomSheet && interceptContentTouch) {
-                dismissSheet();
-                return true;
+            setContentLayerEnabled(true);
+            if (state == State.EXPANDED) {
+                setState(State.PEEKED);
+                setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
             }
+        }
+    }
 
-            event.offsetLocation(isTablet ? getX() - sheetStartX : 0, sheetTranslation - getHeight());
-            getSheetView().dispatchTouchEvent(event);
+    private void settleAfterNestedScroll(float velocity) {
+        sheetMovedByNestedScroll = false;
+        // Released the same way as a sheet dragged by the finger.
+        if (gestureMachine.release(sheetTranslation, velocity) == SheetGestureMachine.COMMAND_DISMISS) {
+            dismissSheet(null, gestureMachine.getVelocity());
+        } else {
+            snapSheet(gestureMachine.getTargetTranslation(), gestureMachine.getVelocity());
+        }
+    }
+
+    /**
+     * Stop the running animation where the sheet currently is so that the finger can take over from there.
+     */
+    private void catchAnimatingSheet() {
+        caughtVelocity = sheetAnimator.getVelocity();
+        caughtTarget = sheetAnimator.getEndValue();
+        caughtDismiss = dismissingSheetView != null;
+        cancelCurrentAnimation();
+        if (caughtDismiss) {
+            // The sheet is staying after all.
+            getSheetView().addOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
+        }
+        // Dragging always starts out of the peeked state, the sheet is expanded again once it is dragged to the top.
+        setState(State.PEEKED);
+        setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
+    }
+
+    /**
+     * Continue the animation interrupted by {@link #catchAnimatingSheet()} with the velocity it had when it was caught.
+     */
+    private void resumeCaughtAnimation() {
+        if (caughtDismiss) {
+            dismissSheet(null, caughtVelocity);
+        } else {
+            snapSheet(caughtTarget, caughtVelocity);
         }
-        return true;
     }
 
     private boolean isXInSheet(float x) {
@@ -438,35 +1081,53 @@ public class BottomSheetLayout extends FrameLayout {
     }
 
     private boolean isAnimating() {
-        return currentAnimator != null;
+        return sheetAnimator.isRunning();
     }
 
     private void cancelCurrentAnimation() {
-        if (currentAnimator != null) {
-            currentAnimator.cancel();
-        }
-    }
-
-    private boolean canScrollUp(View view, float x, float y) {
-        if (view instanceof ViewGroup) {
-            ViewGroup vg = (ViewGroup) view;
-            for (int i = 0; i < vg.getChildCount(); i++) {
-                View child = vg.getChildAt(i);
-                int childLeft = child.getLeft() - view.getScrollX();
-                int childTop = child.getTop() - view.getScrollY();
-                int childRight = child.getRight() - view.getScrollX();
-                int childBottom = child.getBottom() - view.getScrollY();
-                boolean intersects = x > childLeft && x < childRight && y > childTop && y < childBottom;
-                if (intersects && canScrollUp(child, x - childLeft, y - childTop)) {
-                    return true;
-                }
+        sheetAnimator.cancel();
+    }
+
+    /**
+     * Put the content view in a hardware layer for the duration of a sheet transition, or take it out again once the
+     * transition is over. Only content transformed by a view transformer benefits from a layer, and a layer set on the
+     * content view by the application is left alone.
+     */
+    private void setContentLayerEnabled(boolean enabled) {
+        if (enabled) {
+            View contentView = getContentView();
+            if (!useContentLayerWhileAnimating || layeredContentView != null || contentView == null || contentView == getSheetView()
+                    || contentView.getLayerType() != LAYER_TYPE_NONE || !hasContentViewTransformer()) {
+                return;
             }
+            contentView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            layeredContentView = contentView;
+        } else if (layeredContentView != null) {
+            layeredContentView.setLayerType(LAYER_TYPE_NONE, null);
+            layeredContentView = null;
         }
-        return view.canScrollVertically(-1);
+    }
+
+    private boolean hasContentViewTransformer() {
+        return viewTransformer != null || (defaultViewTransformer != null && !(defaultViewTransformer instanceof IdentityViewTransformer));
+    }
+
+    /**
+     * @return Whether the presented sheet may be put in a hardware layer while moving, according to the layer policy if
+     * it is enabled.
+     */
+    private boolean isSheetLayerAllowed() {
+        if (adaptiveSheetLayerType) {
+            return sheetLayerPolicy.getLayerType() == SheetLayerType.HARDWARE;
+        }
+        return useHardwareLayerWhileAnimating;
     }
 
     private void setSheetLayerTypeIfEnabled(int layerType) {
-        if (useHardwareLayerWhileAnimating) {
+        if (adaptiveSheetLayerType) {
+            boolean hardware = layerType == LAYER_TYPE_HARDWARE && sheetLayerPolicy.getLayerType() == SheetLayerType.HARDWARE;
+            getSheetView().setLayerType(hardware ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE, null);
+        } else if (useHardwareLayerWhileAnimating) {
             getSheetView().setLayerType(layerType, null);
         }
     }
@@ -495,29 +1156,26 @@ public class BottomSheetLayout extends FrameLayout {
         this.sheetTranslation = 0;
         this.contentClipRect.set(0, 0, getWidth(), getHeight());
         getSheetView().setTranslationY(getHeight());
-        dimView.setAlpha(0);
-        dimView.setVisibility(INVISIBLE);
+        if (dimPaint != null) {
+            setDimAlpha(0);
+        }
+        transformMemoValid = false;
     }
 
     /**
      * Set the presented sheet to be in an expanded state.
      */
     public void expandSheet() {
+        if (!enqueueSheetCommand(COMMAND_EXPAND)) {
+            expandSheet(0);
+        }
+    }
+
+    private void expandSheet(float velocity) {
         cancelCurrentAnimation();
         setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
-        ObjectAnimator anim = ObjectAnimator.ofFloat(this, SHEET_TRANSLATION, getMaxSheetTranslation());
-        anim.setDuration(ANIMATION_DURATION);
-        anim.setInterpolator(animationInterpolator);
-        anim.addListener(new CancelDetectionAnimationListener() {
-            @Override
-            public void onAnimationEnd(@NonNull Animator animation) {
-                if (!canceled) {
-                    currentAnimator = null;
-                }
-            }
-        });
-        anim.start();
-        currentAnimator = anim;
+        sheetAnimator.start(sheetTranslation, getMaxSheetTranslation(), velocity, motionModel);
+        setContentLayerEnabled(true);
         setState(State.EXPANDED);
     }
 
@@ -525,29 +1183,43 @@ public class BottomSheetLayout extends FrameLayout {
      * Set the presented sheet to be in a peeked state.
      */
     public void peekSheet() {
+        if (!enqueueSheetCommand(COMMAND_PEEK)) {
+            peekSheet(0);
+        }
+    }
+
+    private void peekSheet(float velocity) {
+        snapSheet(getPeekSheetTranslation(), velocity);
+    }
+
+    /**
+     * Animate the sheet to one of its snap points. Every snap point below the max translation is part of the peeked state.
+     */
+    private void snapSheet(float translation, float velocity) {
+        if (translation >= getMaxSheetTranslation()) {
+            expandSheet(velocity);
+            return;
+        }
         cancelCurrentAnimation();
         setSheetLayerTypeIfEnabled(LAYER_TYPE_HARDWARE);
-        ObjectAnimator anim = ObjectAnimator.ofFloat(this, SHEET_TRANSLATION, getPeekSheetTranslation());
-        anim.setDuration(ANIMATION_DURATION);
-        anim.setInterpolator(animationInterpolator);
-        anim.addListener(new CancelDetectionAnimationListener() {
-            @Override
-            public void onAnimationEnd(@NonNull Animator animation) {
-                if (!canceled) {
-                    currentAnimator = null;
-                }
-            }
-        });
-        anim.start();
-        currentAnimator = anim;
+        sheetAnimator.start(sheetTranslation, translation, velocity, motionModel);
+        setContentLayerEnabled(true);
         setState(State.PEEKED);
     }
 
+    /**
+     * @return The current translation of the presented sheet view. Translation is counted from the bottom of the view.
+     */
+    public float getSheetTranslation() {
+        return sheetTranslation;
+    }
+
     /**
      * @return The peeked state translation for the presented sheet view. Translation is counted from the bottom of the view.
      */
     public float getPeekSheetTranslation() {
-        return peek == 0 ? getDefaultPeekTranslation() : peek;
+        ensureSheetGeometry();
+        return cachedPeekSheetTranslation;
     }
 
     private float getDefaultPeekTranslation() {
@@ -561,13 +1233,56 @@ public class BottomSheetLayout extends FrameLayout {
      */
     public void setPeekSheetTranslation(float peek) {
         this.peek = peek;
+        invalidateSheetGeometry();
+    }
+
+    /**
+     * Set additional translations the sheet can come to rest at when released, for example a half expanded sheet.
+     * The peeked and max translations are always snap points. When the sheet is released it settles at the snap point
+     * closest to where its velocity would have carried it, so a fast fling can skip over snap points. Translations outside
+     * of the range between the peeked and max translation are ignored.
+     *
+     * @param translations Translations in pixels, counted from the bottom of the view. Pass none to remove all additional
+     *                     snap points.
+     */
+    public void setSnapSheetTranslations(@NonNull float... translations) {
+        snapPoints.setTranslations(translations);
+        invalidateSheetGeometry();
+    }
+
+    /**
+     * @return The additional snap point translations, sorted in ascending order.
+     */
+    public float[] getSnapSheetTranslations() {
+        return snapPoints.getTranslations();
     }
 
     /**
      * @return The maximum translation for the presented sheet view. Translation is counted from the bottom of the view.
      */
     public float getMaxSheetTranslation() {
-        return hasFullHeightSheet() ? getHeight() - getPaddingTop() : getSheetView().getHeight();
+        ensureSheetGeometry();
+        return cachedMaxSheetTranslation;
+    }
+
+    /**
+     * Recompute the max and peek translations if they have been invalidated since they were last computed.
+     */
+    private void ensureSheetGeometry() {
+        if (!sheetGeometryValid) {
+            cachedMaxSheetTranslation = hasFullHeightSheet() ? getHeight() - getPaddingTop() : getSheetView().getHeight();
+            cachedPeekSheetTranslation = peek == 0 ? getDefaultPeekTranslation() : peek;
+            snapPoints.update(cachedPeekSheetTranslation, cachedMaxSheetTranslation);
+            sheetGeometryValid = true;
+        }
+    }
+
+    /**
+     * Mark the cached max and peek translations as stale. This must be called whenever the size of this layout or
+     * the presented sheet may have changed, or when the sheet itself is added or removed.
+     */
+    private void invalidateSheetGeometry() {
+        sheetGeometryValid = false;
     }
 
     /**
@@ -581,7 +1296,7 @@ public class BottomSheetLayout extends FrameLayout {
      * @return The currently presented sheet view. If no sheet is currently presented null will returned.
      */
     public View getSheetView() {
-        return getChildCount() > 2 ? getChildAt(2) : null;
+        return sheetView;
     }
 
     /**
@@ -592,7 +1307,6 @@ public class BottomSheetLayout extends FrameLayout {
      */
     public void setContentView(View contentView) {
         super.addView(contentView, -1, generateDefaultLayoutParams());
-        super.addView(dimView, -1, generateDefaultLayoutParams());
     }
 
     /**
@@ -611,97 +1325,435 @@ public class BottomSheetLayout extends FrameLayout {
      * @param sheetView The sheet to be presented.
      * @param viewTransformer The view transformer to use when presenting the sheet.
      */
-    public void showWithSheetView(final View sheetView, final ViewTransformer viewTransformer) {
-        if (state != State.HIDDEN) {
-            Runnable runAfterDismissThis = new Runnable() {
+    public void showWithSheetView(View sheetView, ViewTransformer viewTransformer) {
+        showWithSheetView(sheetView, viewTransformer, NO_RECYCLE_TYPE);
+    }
+
+    /**
+     * Present a sheet view to the user and keep it for reuse once it has been dismissed. Instead of being removed
+     * the dismissed sheet is hidden and parked under recycleType, and can be retrieved again with
+     * {@link #getRecycledSheetView(int)}. Showing a parked sheet again neither inflates nor adds a view, so it does not
+     * trigger a layout pass. Only one sheet is parked per recycle type.
+     *
+     * A parked sheet stays attached to this layout and keeps holding on to its views and whatever they reference, use
+     * {@link #clearRecycledSheetViews()} to release them. Layout passes skip measuring parked sheets, a parked sheet is
+     * measured once when it is shown again instead.
+     * If another sheet is currently presented, it will be dismissed, and the new sheet will be shown after that
+     *
+     * @param sheetView The sheet to be presented.
+     * @param viewTransformer The view transformer to use when presenting the sheet.
+     * @param recycleType The type to park the sheet under once dismissed, or {@link #NO_RECYCLE_TYPE}.
+     */
+    public void showWithSheetView(View sheetView, ViewTransformer viewTransformer, int recycleType) {
+        if (enqueueSheetCommand(COMMAND_SHOW)) {
+            pendingSheetView = sheetView;
+            pendingViewTransformer = viewTransformer;
+            pendingRecycleType = recycleType;
+            return;
+        }
+        cancelPendingSheetFactory();
+        presentSheetView(sheetView, viewTransformer, recycleType);
+    }
+
+    /**
+     * Record a command to be applied on the next frame when commands are coalesced. Only the latest command is kept,
+     * except that peek and expand commands are ignored while a show is pending as that sheet will be peeked anyway.
+     *
+     * @return false if commands are not coalesced and the caller should apply the command right away.
+     */
+    private boolean enqueueSheetCommand(int command) {
+        if (!coalesceSheetCommands) {
+            return false;
+        }
+        if (pendingCommand == COMMAND_SHOW && (command == COMMAND_PEEK || command == COMMAND_EXPAND)) {
+            return true;
+        }
+        if (pendingCommand == COMMAND_NONE) {
+            frameClock.postFrameCallback(this, applyPendingSheetCommand);
+        }
+        pendingCommand = command;
+        pendingSheetView = null;
+        pendingViewTransformer = null;
+        return true;
+    }
+
+    private void clearPendingSheetCommand() {
+        pendingCommand = COMMAND_NONE;
+        pendingSheetView = null;
+        pendingViewTransformer = null;
+        frameClock.removeFrameCallback(this, applyPendingSheetCommand);
+    }
+
+    /**
+     * Present a sheet view which is created off the main thread. The factory is called on a background thread where
+     * the sheet is also measured against the current size of this layout, and the sheet is presented once it is
+     * ready. As long as the size of this layout has not changed in the meantime the sheet is not measured again on the
+     * main thread. If creating the sheet takes a while the placeholder is presented in the meantime and replaced by
+     * the sheet in place. Showing another sheet or dismissing the sheet before it is ready discards it.
+     *
+     * @param factory Creates the sheet to be presented.
+     * @param viewTransformer The view transformer to use when presenting the sheet.
+     * @param placeholder A light weight view to present if the sheet is not ready quickly, may be null.
+     */
+    public void showWithSheetView(final SheetViewFactory factory, final ViewTransformer viewTransformer, final View placeholder) {
+        // This sheet supersedes any sheet command waiting for the next frame.
+        clearPendingSheetCommand();
+        cancelPendingSheetFactory();
+        final int request = sheetFactoryRequest;
+        if (placeholder != null) {
+            pendingPlaceholder = new Runnable() {
                 @Override
                 public void run() {
-                    showWithSheetView(sheetView, viewTransformer);
+                    pendingPlaceholder = null;
+                    presentedPlaceholder = placeholder;
+                    presentSheetView(placeholder, viewTransformer, NO_RECYCLE_TYPE);
                 }
             };
-            dismissSheet(runAfterDismissThis);
-            return;
+            postDelayed(pendingPlaceholder, PLACEHOLDER_DELAY);
         }
-        setState(State.PREPARING);
 
-        LayoutParams params = (LayoutParams) sheetView.getLayoutParams();
-        if (params == null) {
-            params = new LayoutParams(isTablet ? LayoutParams.WRAP_CONTENT : LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT, Gravity.CENTER_HORIZONTAL);
+        final Context context = getContext();
+        final int parentWidth = getWidth();
+        final int parentHeight = getHeight();
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        SheetInflationThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                final View sheetView = factory.createSheetView(context, BottomSheetLayout.this);
+                int widthSpec = 0;
+                int heightSpec = 0;
+                if (parentWidth > 0 && parentHeight > 0) {
+                    // Measure the sheet the way it will be measured once added, so that the expensive parts such
+                    // as text layout are done here.
+                    ViewGroup.LayoutParams params = sheetView.getLayoutParams();
+                    int width = params != null ? params.width : isTablet ? defaultSheetWidth : LayoutParams.MATCH_PARENT;
+                    int height = params != null ? params.height : LayoutParams.WRAP_CONTENT;
+                    int horizontalMargins = 0;
+                    int verticalMargins = 0;
+                    if (params instanceof MarginLayoutParams) {
+                        MarginLayoutParams marginParams = (MarginLayoutParams) params;
+                        horizontalMargins = marginParams.leftMargin + marginParams.rightMargin;
+                        verticalMargins = marginParams.topMargin + marginParams.bottomMargin;
+                    }
+                    widthSpec = getSheetMeasureSpec(parentWidth, horizontalPadding + horizontalMargins, width);
+                    heightSpec = getSheetMeasureSpec(parentHeight, verticalPadding + verticalMargins, height);
+                    sheetView.measure(widthSpec, heightSpec);
+                }
+                final int measuredWidthSpec = widthSpec;
+                final int measuredHeightSpec = heightSpec;
+                final Runnable presentSheetView = new Runnable() {
+                    @Override
+                    public void run() {
+                        onFactorySheetViewCreated(request, sheetView, viewTransformer, measuredWidthSpec, measuredHeightSpec);
+                    }
+                };
+                // Not View.post(), which runs on this thread until the layout is attached on older versions. Back on
+                // the main thread the sheet is presented with the next frame.
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        frameClock.postFrameCallback(BottomSheetLayout.this, presentSheetView);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onFactorySheetViewCreated(int request, View sheetView, ViewTransformer viewTransformer, int widthSpec, int heightSpec) {
+        if (request != sheetFactoryRequest) {
+            // Another sheet was shown or the sheet was dismissed in the meantime.
+            return;
         }
+        View placeholder = presentedPlaceholder;
+        cancelPendingSheetFactory();
+        if (widthSpec != 0) {
+            premeasuredSheetView = sheetView;
+            premeasuredWidthSpec = widthSpec;
+            premeasuredHeightSpec = heightSpec;
+        }
+        if (placeholder != null && placeholder == getSheetView() && dismissingSheetView == null) {
+            swapPresentedSheetView(sheetView, viewTransformer);
+        } else {
+            presentSheetView(sheetView, viewTransformer, NO_RECYCLE_TYPE);
+        }
+    }
 
-        if (isTablet && params.width == FrameLayout.LayoutParams.WRAP_CONTENT) {
+    /**
+     * Discard the sheet which is being created by a SheetViewFactory, if any.
+     */
+    private void cancelPendingSheetFactory() {
+        sheetFactoryRequest++;
+        if (pendingPlaceholder != null) {
+            removeCallbacks(pendingPlaceholder);
+            pendingPlaceholder = null;
+        }
+        presentedPlaceholder = null;
+        premeasuredSheetView = null;
+    }
 
-            // Center by default if they didn't specify anything
-            if (params.gravity == -1) {
-                params.gravity = Gravity.CENTER_HORIZONTAL;
-            }
+    /**
+     * Replace the presented sheet with another one at the same translation and settle it in the peeked state.
+     */
+    private void swapPresentedSheetView(View newSheetView, ViewTransformer viewTransformer) {
+        View oldSheetView = sheetView;
+        oldSheetView.removeOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
+        cancelCurrentAnimation();
+        setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
+        removeView(oldSheetView);
 
-            params.width = defaultSheetWidth;
+        super.addView(newSheetView, -1, prepareSheetLayoutParams(newSheetView));
+        this.sheetView = newSheetView;
+        resetSheetLayerPolicy();
+        this.sheetRecycleType = NO_RECYCLE_TYPE;
+        this.viewTransformer = viewTransformer;
+        // Measuring the sheet below is a no-op once it was laid out with the size measured in the background.
+        layoutPremeasuredSheet(newSheetView);
+        layoutSheetNow(newSheetView);
+        invalidateSheetGeometry();
+        currentSheetViewHeight = newSheetView.getMeasuredHeight();
+        newSheetView.addOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
+
+        setSheetTranslation(sheetTranslation);
+        if (state != State.PREPARING) {
+            // Otherwise the pending first draw of the placeholder will peek the new sheet.
+            peekSheet(0);
+        }
+    }
 
-            // Update start and end coordinates for touch reference
-            int horizontalSpacing = screenWidth - defaultSheetWidth;
-            sheetStartX = horizontalSpacing / 2;
-            sheetEndX = screenWidth - sheetStartX;
+    private void presentSheetView(final View sheetView, final ViewTransformer viewTransformer, final int recycleType) {
+        if (state != State.HIDDEN) {
+            Runnable runAfterDismissThis = new Runnable() {
+                @Override
+                public void run() {
+                    presentSheetView(sheetView, viewTransformer, recycleType);
+                }
+            };
+            dismissSheet(runAfterDismissThis);
+            return;
         }
+        setState(State.PREPARING);
 
-        super.addView(sheetView, -1, params);
+        LayoutParams params = prepareSheetLayoutParams(sheetView);
+
+        int recycledIndex = recycledSheetViews.indexOfValue(sheetView);
+        if (recycledIndex >= 0) {
+            recycledSheetViews.removeAt(recycledIndex);
+        }
+        if (sheetView.getParent() == this) {
+            // A parked sheet, it is already added.
+            showHiddenSheetView(sheetView);
+        } else {
+            super.addView(sheetView, -1, params);
+            layoutPremeasuredSheet(sheetView);
+        }
+        this.sheetView = sheetView;
+        this.sheetRecycleType = recycleType;
+        resetSheetLayerPolicy();
+        invalidateSheetGeometry();
         initializeSheetValues();
         this.viewTransformer = viewTransformer;
 
-        // Don't start animating until the sheet has been drawn once. This ensures that we don't do layout while animating and that
-        // the drawing cache for the view has been warmed up. tl;dr it reduces lag.
-        getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-            @Override
-            public boolean onPreDraw() {
-                getViewTreeObserver().removeOnPreDrawListener(this);
-                post(new Runnable() {
-                    @Override
-                    public void run() {
-                        // Make sure sheet view is still here when first draw happens.
-                        // In the case of a large lag it could be that the view is dismissed before it is drawn resulting in sheet view being null here.
-                        if (getSheetView() != null) {
-                            peekSheet();
+        if (fastPresent && layoutSheetNow(sheetView)) {
+            // The sheet already has its final size, so the peek animation can start right away.
+            invalidateSheetGeometry();
+            peekSheet(0);
+        } else {
+            // Don't start animating until the sheet has been drawn once. This ensures that we don't do layout while animating and that
+            // the drawing cache for the view has been warmed up. tl;dr it reduces lag.
+            getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    getViewTreeObserver().removeOnPreDrawListener(this);
+                    frameClock.postFrameCallback(BottomSheetLayout.this, new Runnable() {
+                        @Override
+                        public void run() {
+                            // Make sure sheet view is still here when first draw happens.
+                            // In the case of a large lag it could be that the view is dismissed before it is drawn resulting in sheet view being null here.
+                            if (getSheetView() != null) {
+                                peekSheet(0);
+                            }
                         }
-                    }
-                });
-                return true;
-            }
-        });
+                    });
+                    return true;
+                }
+            });
+        }
 
         // sheetView should always be anchored to the bottom of the screen
         currentSheetViewHeight = sheetView.getMeasuredHeight();
-        sheetViewOnLayoutChangeListener = new OnLayoutChangeListener() {
-            @Override
-            public void onLayoutChange(View sheetView, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
-                int newSheetViewHeight = sheetView.getMeasuredHeight();
-                if (state != State.HIDDEN) {
-                    // The sheet can no longer be in the expanded state if it has shrunk
-                    if (newSheetViewHeight < currentSheetViewHeight) {
-                        if (state == State.EXPANDED) {
-                            setState(State.PEEKED);
-                        }
-                        setSheetTranslation(newSheetViewHeight);
-                    } else if (currentSheetViewHeight > 0 && newSheetViewHeight > currentSheetViewHeight && state == State.PEEKED) {
-                        if (newSheetViewHeight == getMaxSheetTranslation()) {
-                            setState(State.EXPANDED);
-                        }
-                        setSheetTranslation(newSheetViewHeight);
-                    }
-                }
-                currentSheetViewHeight = newSheetViewHeight;
-            }
-        };
         sheetView.addOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
     }
 
+    /**
+     * Present a sheet on top of the currently presented one. The new sheet fades in over the current sheet while
+     * moving to its peeked translation, in a single animation. The current sheet is kept and comes back with
+     * {@link #popSheetView()} or a back press. If no sheet is presented this is the same as showWithSheetView().
+     *
+     * @param sheetView The sheet to be presented.
+     * @param viewTransformer The view transformer to use when presenting the sheet.
+     */
+    public void pushSheetView(View sheetView, ViewTransformer viewTransformer) {
+        if (!canCrossTransition()) {
+            showWithSheetView(sheetView, viewTransformer);
+            return;
+        }
+        clearPendingSheetCommand();
+        cancelPendingSheetFactory();
+        sheetBackStack.add(new BackStackEntry(this.sheetView, this.viewTransformer, this.sheetRecycleType));
+        crossTransitionTo(sheetView, viewTransformer, NO_RECYCLE_TYPE, false);
+    }
+
+    /**
+     * Replace the currently presented sheet with another one in a single cross transition, without touching the
+     * sheets pushed below it. If no sheet is presented this is the same as showWithSheetView().
+     *
+     * @param sheetView The sheet to be presented.
+     * @param viewTransformer The view transformer to use when presenting the sheet.
+     */
+    public void replaceSheetView(View sheetView, ViewTransformer viewTransformer) {
+        if (!canCrossTransition()) {
+            showWithSheetView(sheetView, viewTransformer);
+            return;
+        }
+        clearPendingSheetCommand();
+        cancelPendingSheetFactory();
+        crossTransitionTo(sheetView, viewTransformer, NO_RECYCLE_TYPE, true);
+    }
+
+    /**
+     * Remove the presented sheet and bring back the sheet it was pushed on top of. If there is no such sheet the
+     * presented sheet is dismissed.
+     *
+     * @return true if a previous sheet is now presented, false if the sheet is being dismissed instead.
+     */
+    public boolean popSheetView() {
+        if (sheetBackStack.isEmpty() || !canCrossTransition()) {
+            dismissSheetNow();
+            return false;
+        }
+        clearPendingSheetCommand();
+        cancelPendingSheetFactory();
+        BackStackEntry entry = sheetBackStack.remove(sheetBackStack.size() - 1);
+        crossTransitionTo(entry.sheetView, entry.viewTransformer, entry.recycleType, true);
+        return true;
+    }
+
+    /**
+     * @return The number of sheets below the presented sheet which {@link #popSheetView()} can bring back.
+     */
+    public int getSheetBackStackSize() {
+        return sheetBackStack.size();
+    }
+
+    private boolean canCrossTransition() {
+        return state != State.HIDDEN && dismissingSheetView == null && getSheetView() != null;
+    }
+
+    /**
+     * Make incomingSheetView the presented sheet. It takes over the current translation and animates to its peeked
+     * translation while the upper of the two sheets is faded, so the transition takes one animation.
+     *
+     * @param recycleType The type to park the incoming sheet under once dismissed, or {@link #NO_RECYCLE_TYPE}.
+     * @param removeOutgoing Whether to remove the current sheet once the transition is done, rather than hiding it.
+     */
+    private void crossTransitionTo(View incomingSheetView, ViewTransformer viewTransformer, int recycleType, boolean removeOutgoing) {
+        finishCrossTransition();
+        View outgoing = sheetView;
+        int outgoingRecycleType = sheetRecycleType;
+        // The layer policy has measured the outgoing sheet, it starts over for the incoming one below.
+        boolean outgoingLayered = isSheetLayerAllowed();
+        outgoing.removeOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
+
+        LayoutParams params = prepareSheetLayoutParams(incomingSheetView);
+        int recycledIndex = recycledSheetViews.indexOfValue(incomingSheetView);
+        if (recycledIndex >= 0) {
+            recycledSheetViews.removeAt(recycledIndex);
+        }
+        if (incomingSheetView.getParent() == this) {
+            // A sheet from the back stack or the recycled sheets.
+            showHiddenSheetView(incomingSheetView);
+        } else {
+            super.addView(incomingSheetView, -1, params);
+        }
+        this.sheetView = incomingSheetView;
+        resetSheetLayerPolicy();
+        this.sheetRecycleType = recycleType;
+        this.viewTransformer = viewTransformer;
+        layoutSheetNow(incomingSheetView);
+        invalidateSheetGeometry();
+        currentSheetViewHeight = incomingSheetView.getMeasuredHeight();
+        incomingSheetView.addOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
+        setSheetTranslation(sheetTranslation);
+
+        outgoingSheetView = outgoing;
+        this.outgoingRecycleType = outgoingRecycleType;
+        removeOutgoingSheetView = removeOutgoing;
+        fadingIn = indexOfChild(incomingSheetView) > indexOfChild(outgoing);
+        fadingSheetView = fadingIn ? incomingSheetView : outgoing;
+        if (fadingIn) {
+            incomingSheetView.setAlpha(0);
+        }
+        fadingSheetLayered = fadingIn ? isSheetLayerAllowed() : outgoingLayered;
+        if (fadingSheetLayered) {
+            fadingSheetView.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+        crossFadeAnimator.start(0, 1, 0, crossFadeMotion);
+        peekSheet(0);
+    }
+
+    /**
+     * Jump to the end of a running cross transition, if any.
+     */
+    private void finishCrossTransition() {
+        crossFadeAnimator.cancel();
+    }
+
+    private void onCrossTransitionEnd() {
+        View outgoing = outgoingSheetView;
+        if (outgoing == null) {
+            return;
+        }
+        outgoingSheetView = null;
+        fadingSheetView.setAlpha(1);
+        if (!fadingIn && fadingSheetLayered) {
+            // The layer of the presented sheet is managed by its state.
+            outgoing.setLayerType(LAYER_TYPE_NONE, null);
+        }
+        fadingSheetView = null;
+        if (removeOutgoingSheetView && outgoingRecycleType != NO_RECYCLE_TYPE) {
+            parkSheetView(outgoing, outgoingRecycleType);
+        } else if (removeOutgoingSheetView) {
+            removeView(outgoing);
+        } else {
+            outgoing.setVisibility(INVISIBLE);
+        }
+    }
+
     /**
      * Dismiss the sheet currently being presented.
      */
     public void dismissSheet() {
+        if (!enqueueSheetCommand(COMMAND_DISMISS)) {
+            dismissSheetNow();
+        }
+    }
+
+    private void dismissSheetNow() {
         dismissSheet(null);
     }
 
     private void dismissSheet(Runnable runAfterDismissThis) {
+        dismissSheet(runAfterDismissThis, 0);
+    }
+
+    private void dismissSheet(Runnable runAfterDismissThis, float velocity) {
+        if (runAfterDismissThis == null) {
+            // Dismissed for good, by the user or the app, so a sheet still coming from a SheetViewFactory or a sheet
+            // command waiting for the next frame is discarded.
+            clearPendingSheetCommand();
+            cancelPendingSheetFactory();
+        }
         if (state == State.HIDDEN) {
             runAfterDismiss = null;
             return;
@@ -709,38 +1761,168 @@ public class BottomSheetLayout extends FrameLayout {
         // This must be set every time, including if the parameter is null
         // Otherwise a new sheet might be shown when the caller called dismiss after a showWithSheet call, which would be 
         runAfterDismiss = runAfterDismissThis;
-        final View sheetView = getSheetView();
+        finishCrossTransition();
+        View sheetView = getSheetView();
         sheetView.removeOnLayoutChangeListener(sheetViewOnLayoutChangeListener);
         cancelCurrentAnimation();
-        ObjectAnimator anim = ObjectAnimator.ofFloat(this, SHEET_TRANSLATION, 0);
-        anim.setDuration(ANIMATION_DURATION);
-        anim.setInterpolator(animationInterpolator);
-        anim.addListener(new CancelDetectionAnimationListener() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (!canceled) {
-                    currentAnimator = null;
-                    setState(State.HIDDEN);
-                    setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
-                    removeView(sheetView);
-
-                    for (OnSheetDismissedListener onSheetDismissedListener : onSheetDismissedListeners) {
-                        onSheetDismissedListener.onDismissed(BottomSheetLayout.this);
-                    }
+        sheetAnimator.start(sheetTranslation, 0, velocity, motionModel);
+        setContentLayerEnabled(true);
+        dismissingSheetView = sheetView;
+    }
 
-                    // Remove sheet specific properties
-                    viewTransformer = null;
-                    if (runAfterDismiss != null) {
-                        runAfterDismiss.run();
-                        runAfterDismiss = null;
-                    }
-                }
+    private void onDismissAnimationEnd(View sheetView) {
+        setState(State.HIDDEN);
+        setSheetLayerTypeIfEnabled(LAYER_TYPE_NONE);
+        if (sheetRecycleType != NO_RECYCLE_TYPE) {
+            parkSheetView(sheetView, sheetRecycleType);
+        } else {
+            removeView(sheetView);
+        }
+        this.sheetView = null;
+        this.sheetRecycleType = NO_RECYCLE_TYPE;
+        for (int i = 0; i < sheetBackStack.size(); i++) {
+            BackStackEntry entry = sheetBackStack.get(i);
+            if (entry.recycleType != NO_RECYCLE_TYPE) {
+                parkSheetView(entry.sheetView, entry.recycleType);
+            } else {
+                removeView(entry.sheetView);
             }
-        });
-        anim.start();
-        currentAnimator = anim;
+        }
+        sheetBackStack.clear();
+        invalidateSheetGeometry();
         sheetStartX = 0;
         sheetEndX = screenWidth;
+
+        for (OnSheetDismissedListener onSheetDismissedListener : onSheetDismissedListeners) {
+            onSheetDismissedListener.onDismissed(this);
+        }
+
+        // Remove sheet specific properties
+        viewTransformer = null;
+        if (runAfterDismiss != null) {
+            runAfterDismiss.run();
+            runAfterDismiss = null;
+        }
+    }
+
+    /**
+     * @return The layout params to add the sheet with, adjusted for tablets. This also updates the touch area of the sheet.
+     */
+    private LayoutParams prepareSheetLayoutParams(View sheetView) {
+        LayoutParams params = (LayoutParams) sheetView.getLayoutParams();
+        if (params == null) {
+            params = new LayoutParams(isTablet ? LayoutParams.WRAP_CONTENT : LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT, Gravity.CENTER_HORIZONTAL);
+        }
+
+        if (isTablet && params.width == FrameLayout.LayoutParams.WRAP_CONTENT) {
+
+            // Center by default if they didn't specify anything
+            if (params.gravity == -1) {
+                params.gravity = Gravity.CENTER_HORIZONTAL;
+            }
+
+            params.width = defaultSheetWidth;
+        }
+
+        if (isTablet && params.width == defaultSheetWidth) {
+            // Update start and end coordinates for touch reference
+            int horizontalSpacing = screenWidth - defaultSheetWidth;
+            sheetStartX = horizontalSpacing / 2;
+            sheetEndX = screenWidth - sheetStartX;
+        }
+
+        return params;
+    }
+
+    /**
+     * Measure and lay out the sheet against the current size of this layout, the same way the next layout pass would.
+     *
+     * @return false if this layout has not been laid out yet, in which case the sheet can't be laid out either.
+     */
+    private boolean layoutSheetNow(View sheetView) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width == 0 || height == 0) {
+            return false;
+        }
+        measureChildWithMargins(sheetView, MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY), 0, MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY), 0);
+        placeSheetNow(sheetView);
+        return true;
+    }
+
+    /**
+     * Lay out a sheet created by a SheetViewFactory with the size it was measured with on the inflation thread, if the
+     * specs it would be measured with now are the same. Adding the sheet requested a layout of it, which would measure
+     * it again in the next layout pass. Laying it out here satisfies that request, and as the specs are unchanged the
+     * layout pass then skips measuring it.
+     */
+    private void layoutPremeasuredSheet(View sheetView) {
+        if (sheetView != premeasuredSheetView) {
+            return;
+        }
+        premeasuredSheetView = null;
+        LayoutParams params = (LayoutParams) sheetView.getLayoutParams();
+        int widthSpec = getSheetMeasureSpec(getWidth(), getPaddingLeft() + getPaddingRight() + params.leftMargin + params.rightMargin, params.width);
+        int heightSpec = getSheetMeasureSpec(getHeight(), getPaddingTop() + getPaddingBottom() + params.topMargin + params.bottomMargin, params.height);
+        if (getWidth() > 0 && getHeight() > 0 && widthSpec == premeasuredWidthSpec && heightSpec == premeasuredHeightSpec) {
+            placeSheetNow(sheetView);
+        }
+    }
+
+    /**
+     * @return The spec the sheet is measured with in one dimension, the same as measureChildWithMargins() uses.
+     */
+    private static int getSheetMeasureSpec(int parentSize, int paddingAndMargins, int childDimension) {
+        return getChildMeasureSpec(MeasureSpec.makeMeasureSpec(parentSize, MeasureSpec.EXACTLY), paddingAndMargins, childDimension);
+    }
+
+    /**
+     * Lay out a measured sheet according to its gravity, the same way the next layout pass would.
+     */
+    private void placeSheetNow(View sheetView) {
+        int width = getWidth();
+        int height = getHeight();
+        LayoutParams params = (LayoutParams) sheetView.getLayoutParams();
+        int gravity = params.gravity == -1 ? Gravity.TOP | GravityCompat.START : params.gravity;
+        Rect container = new Rect(getPaddingLeft() + params.leftMargin, getPaddingTop() + params.topMargin,
+                width - getPaddingRight() - params.rightMargin, height - getPaddingBottom() - params.bottomMargin);
+        Rect bounds = new Rect();
+        GravityCompat.apply(gravity, sheetView.getMeasuredWidth(), sheetView.getMeasuredHeight(), container, bounds, ViewCompat.getLayoutDirection(this));
+        sheetView.layout(bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+
+    /**
+     * Hide a dismissed sheet without removing it so it can be shown again without a layout pass.
+     */
+    private void parkSheetView(View sheetView, int recycleType) {
+        View previous = recycledSheetViews.get(recycleType);
+        if (previous != null && previous != sheetView) {
+            removeView(previous);
+        }
+        // Unlike GONE, INVISIBLE keeps the sheet's layout so showing it again does not request a new one.
+        sheetView.setVisibility(INVISIBLE);
+        recycledSheetViews.put(recycleType, sheetView);
+    }
+
+    /**
+     * Get the sheet which was last dismissed after being shown with the given recycle type. The sheet stays parked
+     * until it is passed to {@link #showWithSheetView(View, ViewTransformer, int)} again.
+     *
+     * @param recycleType The recycle type the sheet was shown with.
+     * @return The parked sheet, or null if there is none.
+     */
+    public View getRecycledSheetView(int recycleType) {
+        return recycledSheetViews.get(recycleType);
+    }
+
+    /**
+     * Remove all sheets parked for reuse, for example when they hold on to resources which should be released.
+     */
+    public void clearRecycledSheetViews() {
+        for (int i = 0; i < recycledSheetViews.size(); i++) {
+            removeView(recycledSheetViews.valueAt(i));
+        }
+        recycledSheetViews.clear();
     }
 
     /**
@@ -817,6 +1999,8 @@ public class BottomSheetLayout extends FrameLayout {
      */
     public void setShouldDimContentView(boolean shouldDimContentView) {
         this.shouldDimContentView = shouldDimContentView;
+        transformMemoValid = false;
+        invalidate();
     }
 
     /**
@@ -826,6 +2010,108 @@ public class BottomSheetLayout extends FrameLayout {
         return shouldDimContentView;
     }
 
+    /**
+     * Enable or disable coalescing of sheet commands. When enabled calls to showWithSheetView(View, ...),
+     * peekSheet(), expandSheet() and dismissSheet() are not applied right away but on the next frame, and only the
+     * last of them is applied. This bounds the work done when these are called in bursts, for example from repeated
+     * events. Peek and expand calls made while a show is pending are dropped as the new sheet is peeked anyway. Anything
+     * else which changes the sheet right away, such as pushing a sheet or the user dismissing the sheet, drops the
+     * pending command. Defaults to false.
+     *
+     * @param coalesceSheetCommands whether or not to apply only the last sheet command issued within a frame.
+     */
+    public void setCoalesceSheetCommands(boolean coalesceSheetCommands) {
+        this.coalesceSheetCommands = coalesceSheetCommands;
+        if (!coalesceSheetCommands && pendingCommand != COMMAND_NONE) {
+            applyPendingSheetCommand.run();
+        }
+    }
+
+    /**
+     * @return whether sheet commands are coalesced to one per frame.
+     */
+    public boolean getCoalesceSheetCommands() {
+        return coalesceSheetCommands;
+    }
+
+    /**
+     * Enable or disable fast presentation of sheets. When enabled showWithSheetView() measures and lays out the sheet
+     * right away against the current size of this layout and starts the peek animation immediately, instead of
+     * waiting for the sheet to be drawn once and then posting the animation. If this layout has not been laid out
+     * yet the regular path is used. Defaults to false.
+     *
+     * @param fastPresent whether or not to start presenting sheets in the same frame they are shown.
+     */
+    public void setFastPresent(boolean fastPresent) {
+        this.fastPresent = fastPresent;
+    }
+
+    /**
+     * @return whether sheets start animating in the same frame they are shown.
+     */
+    public boolean getFastPresent() {
+        return fastPresent;
+    }
+
+    /**
+     * Enable or disable coalescing of drag updates. When enabled the sheet translation, view transformer and dim are
+     * updated at most once per display frame while the user drags the sheet, no matter how many move events the
+     * touch screen delivers in that frame. This is useful on devices with high rate touch panels. The release
+     * velocity still takes every touch sample into account. Defaults to false.
+     *
+     * @param coalesceDragUpdates whether or not to apply drag updates once per frame.
+     */
+    public void setCoalesceDragUpdates(boolean coalesceDragUpdates) {
+        this.coalesceDragUpdates = coalesceDragUpdates;
+    }
+
+    /**
+     * @return whether drag updates are applied once per frame.
+     */
+    public boolean getCoalesceDragUpdates() {
+        return coalesceDragUpdates;
+    }
+
+    /**
+     * Enable or disable resampling of the finger position while the user drags the sheet. When enabled the position
+     * the sheet is dragged to is interpolated, or briefly extrapolated, from the recent touch samples to the time of the
+     * upcoming frame instead of using the latest sample. This keeps the sheet at a steady distance from the finger
+     * on touch panels whose sample rate does not match the display. As the position is resampled when the frame
+     * starts, drag updates are also applied once per frame like with {@link #setCoalesceDragUpdates(boolean)}.
+     * Defaults to false.
+     *
+     * @param resampleDragTouches whether or not to resample touch positions to the frame time.
+     */
+    public void setResampleDragTouches(boolean resampleDragTouches) {
+        this.resampleDragTouches = resampleDragTouches;
+    }
+
+    /**
+     * @return whether touch positions are resampled to the frame time while dragging.
+     */
+    public boolean getResampleDragTouches() {
+        return resampleDragTouches;
+    }
+
+    /**
+     * Set the motion model used to animate the sheet between states. When the user releases the sheet the motion
+     * is started with the velocity of the finger, so physics based models such as {@link SpringMotion} and
+     * {@link DecayMotion} continue the gesture without slowing down first. Defaults to a 300ms decelerating
+     * {@link TweenMotion}. The model takes effect for the next transition.
+     *
+     * @param motionModel The motion model to use, must not be shared with another BottomSheetLayout.
+     */
+    public void setMotionModel(@NonNull MotionModel motionModel) {
+        this.motionModel = checkNotNull(motionModel, "motionModel == null");
+    }
+
+    /**
+     * @return The motion model used to animate the sheet between states.
+     */
+    public MotionModel getMotionModel() {
+        return motionModel;
+    }
+
     /**
      * Enable or disable the use of a hardware layer for the presented sheet while animating.
      * This settings defaults to true and should only be changed if you know that putting the
@@ -838,6 +2124,70 @@ public class BottomSheetLayout extends FrameLayout {
         this.useHardwareLayerWhileAnimating = useHardwareLayerWhileAnimating;
     }
 
+    /**
+     * Enable or disable putting the content view in a hardware layer while the sheet is moving and a view transformer
+     * is transforming the content view. This makes transformations such as scaling the content cheap to draw as the
+     * content is only rendered once per transition. Defaults to true and should be disabled if the content view
+     * animates on its own, as the layer would then need to be re-rendered every frame anyway.
+     *
+     * @param useContentLayerWhileAnimating whether or not to use a hardware layer for the content view.
+     */
+    public void setUseContentLayerWhileAnimating(boolean useContentLayerWhileAnimating) {
+        this.useContentLayerWhileAnimating = useContentLayerWhileAnimating;
+        if (!useContentLayerWhileAnimating) {
+            setContentLayerEnabled(false);
+        }
+    }
+
+    /**
+     * Replace the clock the sheet animations are driven by, along with coalesced drag updates and sheet commands and the
+     * start of the peek animation of a new sheet. This is meant for tests, which can use a clock that is advanced
+     * manually to step through a transition frame by frame. The clock should be set before a sheet is presented,
+     * as running animations are stopped where they are.
+     *
+     * @param frameClock The clock to use, {@link FrameClock#SYSTEM} by default.
+     */
+    public void setFrameClock(@NonNull FrameClock frameClock) {
+        checkNotNull(frameClock, "frameClock == null");
+        finishCrossTransition();
+        cancelCurrentAnimation();
+        sheetAnimator.setFrameClock(frameClock);
+        crossFadeAnimator.setFrameClock(frameClock);
+        // Move the work waiting for the next frame over to the new clock.
+        this.frameClock.removeFrameCallback(this, applyPendingDragTranslation);
+        this.frameClock.removeFrameCallback(this, applyPendingSheetCommand);
+        this.frameClock = frameClock;
+        if (hasPendingDragTranslation) {
+            frameClock.postFrameCallback(this, applyPendingDragTranslation);
+        }
+        if (pendingCommand != COMMAND_NONE) {
+            frameClock.postFrameCallback(this, applyPendingSheetCommand);
+        }
+    }
+
+    /**
+     * Let the layer type of the presented sheet be picked from how often it redraws itself while animating, instead of
+     * always using a hardware layer. Sheets which rarely change are put in a hardware layer and sheets which redraw most
+     * frames are drawn directly, as their layer would be rebuilt every frame. Every new sheet starts out with a hardware layer. When enabled this overrides
+     * {@link #setUseHardwareLayerWhileAnimating(boolean)}. Invalidations can only be measured on Lollipop and up.
+     *
+     * @param adaptiveSheetLayerType whether or not to pick the layer type automatically.
+     */
+    public void setAdaptiveSheetLayerType(boolean adaptiveSheetLayerType) {
+        this.adaptiveSheetLayerType = adaptiveSheetLayerType;
+    }
+
+    /**
+     * @return The way the presented sheet is drawn while it is not expanded. This is the choice of the adaptive layer
+     * policy if it is enabled, otherwise it reflects {@link #setUseHardwareLayerWhileAnimating(boolean)}.
+     */
+    public SheetLayerType getSheetLayerType() {
+        if (adaptiveSheetLayerType) {
+            return sheetLayerPolicy.getLayerType();
+        }
+        return useHardwareLayerWhileAnimating ? SheetLayerType.HARDWARE : SheetLayerType.NONE;
+    }
+
     /**
      * Adds an {@link OnSheetStateChangeListener} which will be notified when the state of the presented sheet changes.
      * The listener will not be automatically removed, so remember to remove it when it's no longer needed
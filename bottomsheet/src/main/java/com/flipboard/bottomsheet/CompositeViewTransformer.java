@@ -0,0 +1,226 @@
+package com.flipboard.bottomsheet;
+
+import android.animation.TimeInterpolator;
+import android.view.View;
+
+/**
+ * A view transformer built from a chain of stages. Every stage contributes to a single transform of the content view,
+ * translations are added up while scales and alpha are multiplied, and the result is written to the content view once
+ * per frame. Only properties which changed since the last frame are written, and all of them are backed by the render
+ * node of the view, so transforming the content view never invalidates its drawing or requests a layout.
+ *
+ * Stages must only depend on the translations passed to them, which makes the composite a {@link PureViewTransformer}.
+ * The dim is the same as the one of {@link BaseViewTransformer}.
+ */
+public class CompositeViewTransformer extends BaseViewTransformer implements PureViewTransformer {
+
+    /**
+     * A step of a {@link CompositeViewTransformer}.
+     */
+    public interface Stage {
+
+        /**
+         * Add this stage's contribution to the transform of the content view.
+         *
+         * @param translation The current translation of the presented sheet view.
+         * @param maxTranslation The max translation of the presented sheet view.
+         * @param peekedTranslation The peeked state translation of the presented sheet view.
+         * @param transform The transform accumulated by the previous stages.
+         */
+        void apply(float translation, float maxTranslation, float peekedTranslation, Transform transform);
+
+    }
+
+    /**
+     * The transform of the content view accumulated by the stages over a single frame.
+     */
+    public static final class Transform {
+
+        private float translationX;
+        private float translationY;
+        private float scaleX;
+        private float scaleY;
+        private float alpha;
+
+        Transform() {
+            reset();
+        }
+
+        void reset() {
+            translationX = 0;
+            translationY = 0;
+            scaleX = 1;
+            scaleY = 1;
+            alpha = 1;
+        }
+
+        public void translate(float dx, float dy) {
+            translationX += dx;
+            translationY += dy;
+        }
+
+        public void scale(float sx, float sy) {
+            scaleX *= sx;
+            scaleY *= sy;
+        }
+
+        public void multiplyAlpha(float alpha) {
+            this.alpha *= alpha;
+        }
+
+    }
+
+    /**
+     * Scales the content view down as the sheet moves up, making the content appear to move behind the sheet.
+     */
+    public static class ScaleStage implements Stage {
+
+        private final float minScale;
+        private final TimeInterpolator interpolator;
+
+        /**
+         * @param minScale The scale of the content view when the sheet is at its max translation.
+         */
+        public ScaleStage(float minScale) {
+            this(minScale, null);
+        }
+
+        /**
+         * @param minScale The scale of the content view when the sheet is at its max translation.
+         * @param interpolator The interpolator applied to the progress of the sheet, may be null for a linear scale.
+         */
+        public ScaleStage(float minScale, TimeInterpolator interpolator) {
+            this.minScale = minScale;
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public void apply(float translation, float maxTranslation, float peekedTranslation, Transform transform) {
+            float scale = 1 - (1 - minScale) * getProgress(translation, maxTranslation, interpolator);
+            transform.scale(scale, scale);
+        }
+
+    }
+
+    /**
+     * Moves the content view up by a fraction of the distance the sheet moves, giving a parallax effect.
+     */
+    public static class TranslationStage implements Stage {
+
+        private final float maxOffset;
+        private final TimeInterpolator interpolator;
+
+        /**
+         * @param maxOffset How far to move the content view up when the sheet is at its max translation, in pixels.
+         */
+        public TranslationStage(float maxOffset) {
+            this(maxOffset, null);
+        }
+
+        /**
+         * @param maxOffset How far to move the content view up when the sheet is at its max translation, in pixels.
+         * @param interpolator The interpolator applied to the progress of the sheet, may be null for a linear translation.
+         */
+        public TranslationStage(float maxOffset, TimeInterpolator interpolator) {
+            this.maxOffset = maxOffset;
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public void apply(float translation, float maxTranslation, float peekedTranslation, Transform transform) {
+            transform.translate(0, -maxOffset * getProgress(translation, maxTranslation, interpolator));
+        }
+
+    }
+
+    /**
+     * Fades the content view out as the sheet moves up.
+     */
+    public static class AlphaStage implements Stage {
+
+        private final float minAlpha;
+        private final TimeInterpolator interpolator;
+
+        /**
+         * @param minAlpha The alpha of the content view when the sheet is at its max translation.
+         */
+        public AlphaStage(float minAlpha) {
+            this(minAlpha, null);
+        }
+
+        /**
+         * @param minAlpha The alpha of the content view when the sheet is at its max translation.
+         * @param interpolator The interpolator applied to the progress of the sheet, may be null for a linear fade.
+         */
+        public AlphaStage(float minAlpha, TimeInterpolator interpolator) {
+            this.minAlpha = minAlpha;
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public void apply(float translation, float maxTranslation, float peekedTranslation, Transform transform) {
+            transform.multiplyAlpha(1 - (1 - minAlpha) * getProgress(translation, maxTranslation, interpolator));
+        }
+
+    }
+
+    private final Stage[] stages;
+    private final Transform transform = new Transform();
+
+    /** The view and the values last written to it, so unchanged properties are not written again */
+    private View transformedView;
+    private float translationX;
+    private float translationY;
+    private float scaleX;
+    private float scaleY;
+    private float alpha;
+
+    /**
+     * @param stages The stages to apply, in order.
+     */
+    public CompositeViewTransformer(Stage... stages) {
+        this.stages = stages.clone();
+    }
+
+    @Override
+    public void transformView(float translation, float maxTranslation, float peekedTranslation, BottomSheetLayout parent, View view) {
+        if (view == null) {
+            return;
+        }
+        transform.reset();
+        for (Stage stage : stages) {
+            stage.apply(translation, maxTranslation, peekedTranslation, transform);
+        }
+        boolean writeAll = view != transformedView;
+        transformedView = view;
+        if (writeAll || transform.translationX != translationX) {
+            translationX = transform.translationX;
+            view.setTranslationX(translationX);
+        }
+        if (writeAll || transform.translationY != translationY) {
+            translationY = transform.translationY;
+            view.setTranslationY(translationY);
+        }
+        if (writeAll || transform.scaleX != scaleX) {
+            scaleX = transform.scaleX;
+            view.setScaleX(scaleX);
+        }
+        if (writeAll || transform.scaleY != scaleY) {
+            scaleY = transform.scaleY;
+            view.setScaleY(scaleY);
+        }
+        if (writeAll || transform.alpha != alpha) {
+            alpha = transform.alpha;
+            view.setAlpha(alpha);
+        }
+    }
+
+    /**
+     * @return The progress of the sheet from hidden to its max translation, clamped to [0, 1] and interpolated.
+     */
+    static float getProgress(float translation, float maxTranslation, TimeInterpolator interpolator) {
+        float progress = maxTranslation > 0 ? Math.max(0, Math.min(1, translation / maxTranslation)) : 0;
+        return interpolator != null ? interpolator.getInterpolation(progress) : progress;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.flipboard.bottomsheet;
+
+/**
+ * A fling which decelerates exponentially and comes to rest exactly at the end value. If the start velocity is
+ * high the friction is increased so the sheet does not overshoot, if it is low (or pointing away from the end value)
+ * the sheet is given just enough speed to reach the end value with the configured friction.
+ */
+public class DecayMotion implements MotionModel {
+
+    public static final float DEFAULT_FRICTION = 12f;
+
+    /** Distance in pixels from the end value at which the fling is considered to be at rest */
+    private static final float VALUE_THRESHOLD = 0.5f;
+
+    private final float friction;
+
+    private float startValue;
+    private float endValue;
+    private float currentFriction;
+    private double time;
+    private float value;
+    private float velocity;
+
+    public DecayMotion() {
+        this(DEFAULT_FRICTION);
+    }
+
+    /**
+     * @param friction The rate at which the velocity decays per second. Must be positive.
+     */
+    public DecayMotion(float friction) {
+        if (friction <= 0) {
+            throw new IllegalArgumentException("friction must be positive");
+        }
+        this.friction = friction;
+    }
+
+    /**
+     * @return The value a free fling with the configured friction starting at value with velocity would come to rest at.
+     */
+    public float project(float value, float velocity) {
+        return value + velocity / friction;
+    }
+
+    @Override
+    public void start(float startValue, float endValue, float startVelocity) {
+        this.startValue = startValue;
+        this.endValue = endValue;
+        this.time = 0;
+        this.value = startValue;
+        float distance = endValue - startValue;
+        // A fling with friction f and velocity v travels v / f, pick the friction which lands exactly on the end value.
+        float requiredFriction = distance != 0 ? startVelocity / distance : 0;
+        this.currentFriction = Math.max(friction, requiredFriction);
+        this.velocity = currentFriction * distance;
+    }
+
+    @Override
+    public boolean update(float deltaTime) {
+        time += deltaTime;
+        float distance = endValue - startValue;
+        double decay = Math.exp(-currentFriction * time);
+        float remaining = (float) (distance * decay);
+        if (Math.abs(remaining) < VALUE_THRESHOLD) {
+            value = endValue;
+            velocity = 0;
+            return true;
+        }
+        value = endValue - remaining;
+        velocity = currentFriction * remaining;
+        return false;
+    }
+
+    @Override
+    public float getValue() {
+        return value;
+    }
+
+    @Override
+    public float getVelocity() {
+        return velocity;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.flipboard.bottomsheet;
+
+import android.view.View;
+
+/**
+ * The source of frames for the animations of BottomSheetLayout. The default clock schedules work on the next animation
+ * frame of the host view, tests can provide a clock which is advanced manually to step through animations deterministically.
+ */
+public interface FrameClock {
+
+    /** Schedules on the animation frames of the view hierarchy, using the animation time base */
+    FrameClock SYSTEM = new SystemFrameClock();
+
+    /**
+     * @return The time of the current frame in milliseconds.
+     */
+    long getFrameTimeMillis();
+
+    /**
+     * Run callback once, at the next frame.
+     *
+     * @param host The view the animation belongs to.
+     */
+    void postFrameCallback(View host, Runnable callback);
+
+    /**
+     * Remove a callback posted with {@link #postFrameCallback(View, Runnable)} which has not run yet.
+     */
+    void removeFrameCallback(View host, Runnable callback);
+
+    /**
+     * @param host The view the animation belongs to.
+     *
+     * @return The factor animation durations are scaled by, 0 if animations are turned off. This is the animator duration
+     * scale of the system for the default clock.
+     */
+    float getDurationScale(View host);
+
+}
@@ -0,0 +1,40 @@
+package com.flipboard.bottomsheet;
+
+/**
+ * Describes how the presented sheet moves from one translation to another. A motion model is started with the
+ * velocity the sheet had at that moment (usually the velocity of the finger when it was released) which allows
+ * physics based models to continue a gesture without a visible change in speed.
+ *
+ * Instances hold the state of the running motion so a single instance should not be shared between BottomSheetLayouts.
+ */
+public interface MotionModel {
+
+    /**
+     * Called when a new motion starts.
+     *
+     * @param startValue The translation the sheet starts at.
+     * @param endValue The translation the sheet should end at.
+     * @param startVelocity The velocity of the sheet in pixels per second. Positive values move the sheet up.
+     */
+    void start(float startValue, float endValue, float startVelocity);
+
+    /**
+     * Called once per frame to advance the motion.
+     *
+     * @param deltaTime The time in seconds since the last call to start() or update().
+     *
+     * @return true if the motion has come to rest at the end value.
+     */
+    boolean update(float deltaTime);
+
+    /**
+     * @return The translation at the current point of the motion.
+     */
+    float getValue();
+
+    /**
+     * @return The velocity at the current point of the motion in pixels per second.
+     */
+    float getVelocity();
+
+}
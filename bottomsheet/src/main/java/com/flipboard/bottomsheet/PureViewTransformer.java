@@ -0,0 +1,11 @@
+package com.flipboard.bottomsheet;
+
+/**
+ * A {@link ViewTransformer} whose transformation and dim alpha depend on nothing but the translations passed to it.
+ * BottomSheetLayout skips calling such a transformer when the translation of the sheet has not moved by more than a
+ * fraction of a pixel since the last call, so implementations must not read any other state, such as the current time
+ * or the size of the content view, which could change in between.
+ */
+public interface PureViewTransformer extends ViewTransformer {
+
+}
@@ -0,0 +1,173 @@
+package com.flipboard.bottomsheet;
+
+import java.util.ArrayList;
+
+/**
+ * An index of the vertically scrollable views within a sheet. The index is built lazily after being invalidated and
+ * is used to resolve the views under a touch once per gesture, so that checking whether the sheet content can scroll
+ * up while dragging does not walk the view hierarchy on every move event.
+ *
+ * The view hierarchy is read through {@link Nodes}, which keeps the index independent of the Android framework.
+ *
+ * @param <T> The type of the nodes of the hierarchy, View in the library.
+ */
+final class ScrollTargetIndex<T> {
+
+    /**
+     * Read access to a view hierarchy, with the same meaning as the methods of View of the same name.
+     */
+    interface Nodes<T> {
+
+        int getChildCount(T node);
+
+        T getChildAt(T node, int index);
+
+        /**
+         * @return The parent of node, or null if node has been detached or its parent is not a node.
+         */
+        T getParent(T node);
+
+        int getLeft(T node);
+
+        int getTop(T node);
+
+        int getWidth(T node);
+
+        int getHeight(T node);
+
+        int getScrollX(T node);
+
+        int getScrollY(T node);
+
+        /**
+         * @return Whether node reports its scrolling to its parents through nested scrolling.
+         */
+        boolean isNestedScrollingEnabled(T node);
+
+        boolean canScrollVertically(T node, int direction);
+
+    }
+
+    private final Nodes<T> nodes;
+    private final ArrayList<T> scrollableViews = new ArrayList<>();
+    private final ArrayList<T> targets = new ArrayList<>();
+    private T indexedRoot;
+    private boolean valid;
+
+    ScrollTargetIndex(Nodes<T> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Mark the index as stale, it will be rebuilt the next time targets are resolved.
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Resolve which of the scrollable views contain the given point. The result is used by {@link #canScrollUp()}
+     * until this method is called again.
+     *
+     * @param root The root of the sheet view hierarchy.
+     * @param x The x coordinate of the touch relative to root.
+     * @param y The y coordinate of the touch relative to root.
+     */
+    void resolveTargets(T root, float x, float y) {
+        targets.clear();
+        if (root == null) {
+            return;
+        }
+        if (!valid || root != indexedRoot) {
+            scrollableViews.clear();
+            collectScrollableViews(root);
+            indexedRoot = root;
+            valid = true;
+        }
+        for (int i = 0, size = scrollableViews.size(); i < size; i++) {
+            T view = scrollableViews.get(i);
+            if (isUnderPoint(root, view, x, y)) {
+                targets.add(view);
+            }
+        }
+    }
+
+    /**
+     * @return Whether any of the views resolved by the last call to {@link #resolveTargets(Object, float, float)} can scroll up.
+     */
+    boolean canScrollUp() {
+        for (int i = 0, size = targets.size(); i < size; i++) {
+            if (nodes.canScrollVertically(targets.get(i), -1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether any of the views resolved by the last call to {@link #resolveTargets(Object, float, float)} reports
+     * its scrolling through nested scrolling.
+     */
+    boolean hasNestedScrollingTarget() {
+        for (int i = 0, size = targets.size(); i < size; i++) {
+            if (nodes.isNestedScrollingEnabled(targets.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget the resolved targets and the index so no views are retained once the sheet is gone.
+     */
+    void clear() {
+        targets.clear();
+        scrollableViews.clear();
+        indexedRoot = null;
+        valid = false;
+    }
+
+    private void collectScrollableViews(T view) {
+        if (nodes.canScrollVertically(view, -1) || nodes.canScrollVertically(view, 1)) {
+            scrollableViews.add(view);
+        }
+        for (int i = 0, count = nodes.getChildCount(view); i < count; i++) {
+            collectScrollableViews(nodes.getChildAt(view, i));
+        }
+    }
+
+    /**
+     * Hit test the view and all of its ancestors below root against a point relative to root. The root itself
+     * always contains the point.
+     */
+    private boolean isUnderPoint(T root, T view, float x, float y) {
+        // Compute the offset of view relative to root.
+        float left = 0;
+        float top = 0;
+        T child = view;
+        while (child != root) {
+            T parent = nodes.getParent(child);
+            if (parent == null) {
+                // Detached from the sheet since the index was built.
+                return false;
+            }
+            left += nodes.getLeft(child) - nodes.getScrollX(parent);
+            top += nodes.getTop(child) - nodes.getScrollY(parent);
+            child = parent;
+        }
+
+        // Walk up again checking that every view on the path contains the point.
+        child = view;
+        while (child != root) {
+            if (!(x > left && x < left + nodes.getWidth(child) && y > top && y < top + nodes.getHeight(child))) {
+                return false;
+            }
+            T parent = nodes.getParent(child);
+            left -= nodes.getLeft(child) - nodes.getScrollX(parent);
+            top -= nodes.getTop(child) - nodes.getScrollY(parent);
+            child = parent;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.flipboard.bottomsheet;
+
+/**
+ * The drag, snap and dismiss logic of {@link BottomSheetLayout}, independent of the Android framework. The machine
+ * consumes the position of the finger driving the gesture and answers every sample with a set of commands for its
+ * host to carry out, such as moving the sheet or letting it settle at a snap point. The host is only queried for the
+ * current geometry of the sheet, which makes it possible to run large numbers of simulated gestures on a plain JVM.
+ *
+ * Commands are combined into a bit mask and must be carried out in the order they are declared in.
+ *
+ * This is internal to the library, the benchmarks and tests share its package to reach it.
+ */
+final class SheetGestureMachine {
+
+    /** Actions of touch samples, these have the same values as the corresponding MotionEvent actions */
+    static final int ACTION_DOWN = 0;
+    static final int ACTION_UP = 1;
+    static final int ACTION_MOVE = 2;
+    static final int ACTION_CANCEL = 3;
+    static final int ACTION_POINTER_DOWN = 5;
+    static final int ACTION_POINTER_UP = 6;
+
+    /** The sheet took over the gesture while peeked, any touch handling already started in the sheet should be canceled */
+    static final int COMMAND_CANCEL_SHEET_TOUCH = 1;
+    /** The sheet is dragged down out of the expanded state, the sheet should stop handling the gesture */
+    static final int COMMAND_DETACH_FROM_TOP = 1 << 1;
+    /** The sheet was dragged to its max translation and is expanded, the sheet should start handling the gesture */
+    static final int COMMAND_ATTACH_TO_TOP = 1 << 2;
+    /** The sample should be handled by the sheet itself */
+    static final int COMMAND_FORWARD_TO_SHEET = 1 << 3;
+    /** The sheet should be moved to {@link #getTranslation()} */
+    static final int COMMAND_TRANSLATE = 1 << 4;
+    /** The sheet should settle at {@link #getTargetTranslation()}, with {@link #getVelocity()} */
+    static final int COMMAND_SETTLE = 1 << 5;
+    /** The sheet should be dismissed, with {@link #getVelocity()} */
+    static final int COMMAND_DISMISS = 1 << 6;
+    /** The sheet was only held after catching an animation, the animation should carry on */
+    static final int COMMAND_RESUME = 1 << 7;
+    /** The gesture was a tap outside of the sheet */
+    static final int COMMAND_TOUCH_OUTSIDE = 1 << 8;
+
+    /**
+     * The geometry of the sheet the gesture is applied to. Translations are counted from the bottom of the host.
+     */
+    interface Host {
+
+        float getTranslation();
+
+        float getMaxTranslation();
+
+        float getPeekTranslation();
+
+        boolean isExpanded();
+
+        /**
+         * @return Whether the content of the sheet under the gesture can scroll up.
+         */
+        boolean canScrollUp();
+
+        boolean isOutsideSheet(float x, float y);
+
+    }
+
+    /**
+     * The fingers on the screen during a touch sample, with the same meaning as the methods of MotionEvent of the same
+     * name.
+     */
+    interface Pointers {
+
+        int getPointerId(int pointerIndex);
+
+        float getX(int pointerIndex);
+
+        float getY(int pointerIndex);
+
+    }
+
+    private final Host host;
+    private final SnapPoints snapPoints;
+    private final float touchSlop;
+    private final float minFlingVelocity;
+
+    private boolean dragging;
+    private boolean sheetOwnsTouch;
+    private boolean caughtAnimation;
+    private boolean downExpanded;
+    private int activePointerId;
+    private float downX;
+    private float downY;
+    private float downTranslation;
+    private float startTranslation;
+    private float dragTranslation;
+
+    private float translation;
+    private float targetTranslation;
+    private float velocity;
+
+    /**
+     * @param touchSlop The distance in pixels a finger has to move before it drags the sheet.
+     * @param minFlingVelocity The velocity in pixels per second above which a release always moves on to the next snap point.
+     */
+    SheetGestureMachine(Host host, float touchSlop, float minFlingVelocity) {
+        this(host, new SnapPoints(), touchSlop, minFlingVelocity);
+    }
+
+    SheetGestureMachine(Host host, SnapPoints snapPoints, float touchSlop, float minFlingVelocity) {
+        this.host = host;
+        this.snapPoints = snapPoints;
+        this.touchSlop = touchSlop;
+        this.minFlingVelocity = minFlingVelocity;
+    }
+
+    /**
+     * @param translations Additional snap point translations, see {@link BottomSheetLayout#setSnapSheetTranslations(float...)}.
+     * Must not be null.
+     */
+    void setSnapTranslations(float... translations) {
+        snapPoints.setTranslations(translations);
+    }
+
+    /**
+     * Start a new gesture.
+     *
+     * @param pointerId The id of the finger which touched down, it drives the gesture until another finger takes over.
+     * @param caughtAnimation Whether the finger caught the sheet while it was animating, the sheet is dragged right away then.
+     *
+     * @return The commands to carry out.
+     */
+    int onDown(int pointerId, float x, float y, boolean caughtAnimation) {
+        activePointerId = pointerId;
+        this.caughtAnimation = caughtAnimation;
+        dragging = caughtAnimation;
+        sheetOwnsTouch = false;
+        downX = x;
+        downY = y;
+        startTranslation = host.getTranslation();
+        float peekTranslation = host.getPeekTranslation();
+        downTranslation = startTranslation;
+        if (downTranslation < peekTranslation) {
+            // Undo the resistance applied below the peeked translation, so the first sample maps to where the sheet is.
+            downTranslation = peekTranslation - (peekTranslation - downTranslation) * 4;
+        }
+        dragTranslation = downTranslation;
+        downExpanded = host.isExpanded();
+        return onTouch(ACTION_DOWN, x, y, 0);
+    }
+
+    /**
+     * Another finger touched down, it drives the gesture from now on.
+     *
+     * @param actionIndex The index of the finger which touched down.
+     */
+    void onPointerDown(Pointers pointers, int actionIndex) {
+        activePointerId = pointers.getPointerId(actionIndex);
+        reanchor(pointers.getX(actionIndex), pointers.getY(actionIndex));
+    }
+
+    /**
+     * A finger was lifted while others remain on the screen. If it was driving the gesture one of the remaining fingers
+     * takes over.
+     *
+     * @param actionIndex The index of the finger which was lifted, pointers still include it.
+     *
+     * @return Whether a different finger drives the gesture now.
+     */
+    boolean onPointerUp(Pointers pointers, int actionIndex) {
+        if (pointers.getPointerId(actionIndex) != activePointerId) {
+            return false;
+        }
+        int newIndex = actionIndex == 0 ? 1 : 0;
+        activePointerId = pointers.getPointerId(newIndex);
+        reanchor(pointers.getX(newIndex), pointers.getY(newIndex));
+        return true;
+    }
+
+    /**
+     * @return The id of the finger driving the gesture, the samples passed to {@link #onTouch(int, float, float, float)}
+     * should be the positions of this finger.
+     */
+    int getActivePointerId() {
+        return activePointerId;
+    }
+
+    /**
+     * Continue the gesture from the given position of a different finger. The translation the sheet would have without
+     * being limited becomes the new starting point, so the sheet stays where it is instead of jumping to the new finger.
+     */
+    private void reanchor(float x, float y) {
+        downX = x;
+        downY = y;
+        downTranslation = dragTranslation;
+    }
+
+    /**
+     * Advance the gesture started by {@link #onDown(int, float, float, boolean)}.
+     *
+     * @param action One of {@link #ACTION_MOVE}, {@link #ACTION_UP} or {@link #ACTION_CANCEL}, any other action is
+     * treated like a move.
+     * @param velocity The vertical velocity of the finger in pixels per second, positive values move the sheet up. Only
+     * read when the action is {@link #ACTION_UP}.
+     *
+     * @return The commands to carry out.
+     */
+    int onTouch(int action, float x, float y, float velocity) {
+        int commands = 0;
+        float maxTranslation = host.getMaxTranslation();
+        float peekTranslation = host.getPeekTranslation();
+        float deltaY = downY - y;
+        float deltaX = downX - x;
+
+        if (!dragging && !sheetOwnsTouch) {
+            dragging = Math.abs(deltaY) > touchSlop;
+            sheetOwnsTouch = Math.abs(deltaX) > touchSlop;
+
+            if (dragging) {
+                if (!host.isExpanded()) {
+                    commands |= COMMAND_CANCEL_SHEET_TOUCH;
+                }
+                sheetOwnsTouch = false;
+                downY = y;
+                downX = x;
+                deltaY = 0;
+            }
+        }
+
+        if (!dragging) {
+            if (action == ACTION_UP && host.isOutsideSheet(x, y)) {
+                return commands | COMMAND_TOUCH_OUTSIDE;
+            }
+            return commands | COMMAND_FORWARD_TO_SHEET;
+        }
+
+        // This is not the actual new sheet translation but a first approximation it will be adjusted to account for max and min translations etc.
+        float newTranslation = downTranslation + deltaY;
+        boolean expanded = host.isExpanded();
+
+        // If we are scrolling down and the sheet cannot scroll further, go out of expanded mode.
+        if (expanded && deltaY < 0 && !host.canScrollUp()) {
+            // Reset variables so deltas are correctly calculated from the point at which the sheet was 'detached' from the top.
+            float currentTranslation = host.getTranslation();
+            downY = y;
+            downTranslation = currentTranslation;
+            newTranslation = currentTranslation;
+            expanded = false;
+            commands |= COMMAND_DETACH_FROM_TOP;
+        }
+
+        // If we are at the top of the view we should go into expanded mode.
+        if (!expanded && newTranslation > maxTranslation) {
+            newTranslation = maxTranslation;
+            expanded = true;
+            commands |= COMMAND_ATTACH_TO_TOP;
+        }
+
+        dragTranslation = newTranslation;
+        if (expanded) {
+            // The sheet handles its own internal scrolling when expanded.
+            return commands | COMMAND_FORWARD_TO_SHEET;
+        }
+
+        newTranslation = resist(newTranslation, peekTranslation);
+        translation = newTranslation;
+        commands |= COMMAND_TRANSLATE;
+
+        if (action == ACTION_CANCEL) {
+            // If touch is canceled, go back to previous state, a canceled touch should never commit an action.
+            snapPoints.update(peekTranslation, maxTranslation);
+            targetTranslation = downExpanded ? maxTranslation : snapPoints.findTarget(startTranslation, 0, minFlingVelocity);
+            this.velocity = 0;
+            commands |= COMMAND_SETTLE;
+        } else if (action == ACTION_UP) {
+            if (caughtAnimation && Math.abs(deltaY) <= touchSlop) {
+                // The sheet was only held, not dragged. Let it carry on where it was headed.
+                this.velocity = velocity;
+                commands |= COMMAND_RESUME;
+            } else {
+                commands |= release(newTranslation, velocity);
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Decide where a sheet let go of at translation goes. This is how a drag ends, and is also used by the host when
+     * the sheet was moved by other means such as nested scrolling.
+     *
+     * @param velocity The vertical velocity of the sheet in pixels per second, positive values move the sheet up.
+     *
+     * @return {@link #COMMAND_DISMISS} if the sheet was let go of below its peeked translation without being flung up,
+     * otherwise {@link #COMMAND_SETTLE}.
+     */
+    int release(float translation, float velocity) {
+        this.velocity = velocity;
+        float peekTranslation = host.getPeekTranslation();
+        if (translation < peekTranslation && velocity < minFlingVelocity) {
+            return COMMAND_DISMISS;
+        }
+        // Settle at the snap point closest to where the fling would have carried the sheet.
+        snapPoints.update(peekTranslation, host.getMaxTranslation());
+        targetTranslation = snapPoints.findTarget(translation, velocity, minFlingVelocity);
+        return COMMAND_SETTLE;
+    }
+
+    /**
+     * The translation the sheet would be dragged to if the driving finger were at y, without advancing the gesture. This
+     * lets the host move the sheet to a position resampled at frame time rather than to the latest sample.
+     *
+     * Only meaningful while {@link #isDragging()}.
+     */
+    float getDragTranslation(float y) {
+        float newTranslation = Math.min(downTranslation + downY - y, host.getMaxTranslation());
+        return resist(newTranslation, host.getPeekTranslation());
+    }
+
+    /**
+     * Make delta less effective when sheet is below the minimum translation.
+     * This makes it feel like scrolling in jello which gives the user an indication that the sheet will be dismissed if they let go.
+     */
+    private static float resist(float translation, float peekTranslation) {
+        if (translation < peekTranslation) {
+            return peekTranslation - (peekTranslation - translation) / 4f;
+        }
+        return translation;
+    }
+
+    /**
+     * @return Whether the current gesture drags the sheet, as opposed to being handled by the sheet or not moving yet.
+     */
+    boolean isDragging() {
+        return dragging;
+    }
+
+    /**
+     * @return The translation the sheet should be moved to for {@link #COMMAND_TRANSLATE}.
+     */
+    float getTranslation() {
+        return translation;
+    }
+
+    /**
+     * @return The translation the sheet should settle at for {@link #COMMAND_SETTLE}.
+     */
+    float getTargetTranslation() {
+        return targetTranslation;
+    }
+
+    /**
+     * @return The velocity the sheet should settle or be dismissed with, in pixels per second.
+     */
+    float getVelocity() {
+        return velocity;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.flipboard.bottomsheet;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * The background thread on which sheets created by a {@link SheetViewFactory} are inflated and measured. It is
+ * started the first time it is needed and shared by all BottomSheetLayouts.
+ */
+final class SheetInflationThread {
+
+    private static Handler handler;
+
+    static synchronized Handler getHandler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("BottomSheetInflation");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    private SheetInflationThread() {
+        throw new AssertionError("No Instances");
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.flipboard.bottomsheet;
+
+import com.flipboard.bottomsheet.BottomSheetLayout.SheetLayerType;
+
+/**
+ * Picks the layer type of the presented sheet from how often it was invalidated while moving. A hardware layer only pays
+ * off if the sheet stays the same between frames, a sheet which redraws itself during the transition has its layer rebuilt
+ * every frame. Such sheets are drawn without a layer.
+ */
+final class SheetLayerPolicy {
+
+    /** Frames which need to be sampled before a decision is made, shorter transitions are accumulated */
+    private static final int MIN_SAMPLED_FRAMES = 8;
+
+    /** The largest fraction of frames in which the sheet may be invalidated for a hardware layer to be used */
+    private static final float MAX_HARDWARE_INVALIDATION_RATE = 0.25f;
+
+    private SheetLayerType layerType = SheetLayerType.HARDWARE;
+    private int sampledFrames;
+    private int invalidatedFrames;
+
+    /**
+     * Forget everything measured so far, a new sheet is assumed to benefit from a hardware layer until proven otherwise.
+     */
+    void reset() {
+        layerType = SheetLayerType.HARDWARE;
+        sampledFrames = 0;
+        invalidatedFrames = 0;
+    }
+
+    /**
+     * Record a frame in which the sheet was drawn while moving.
+     *
+     * @param invalidated Whether the sheet content had been invalidated since it was last drawn.
+     */
+    void onFrameDrawn(boolean invalidated) {
+        sampledFrames++;
+        if (invalidated) {
+            invalidatedFrames++;
+        }
+    }
+
+    /**
+     * Re-evaluate the layer type at the end of a transition if enough frames have been sampled.
+     *
+     * @return Whether the layer type changed.
+     */
+    boolean onTransitionEnd() {
+        if (sampledFrames < MIN_SAMPLED_FRAMES) {
+            return false;
+        }
+        SheetLayerType previous = layerType;
+        if (invalidatedFrames <= sampledFrames * MAX_HARDWARE_INVALIDATION_RATE) {
+            layerType = SheetLayerType.HARDWARE;
+        } else {
+            layerType = SheetLayerType.NONE;
+        }
+        sampledFrames = 0;
+        invalidatedFrames = 0;
+        return layerType != previous;
+    }
+
+    SheetLayerType getLayerType() {
+        return layerType;
+    }
+
+}
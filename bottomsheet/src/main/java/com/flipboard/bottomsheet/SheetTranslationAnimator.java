@@ -0,0 +1,118 @@
+package com.flipboard.bottomsheet;
+
+import android.view.View;
+
+/**
+ * Drives the sheet translation on primitive floats. Unlike an ObjectAnimator backed by a boxed Property this does not
+ * allocate anything per frame, and a single instance is reused for every transition of the sheet. Like ValueAnimator
+ * it follows the animator duration scale of the system, and jumps to the end value in the first frame when animations
+ * are turned off.
+ */
+final class SheetTranslationAnimator implements Runnable {
+
+    /**
+     * Receives the values computed by the animator. A single instance is registered for the lifetime of the animator.
+     */
+    interface Callback {
+
+        /**
+         * Called once per frame with the new translation.
+         */
+        void onAnimationUpdate(float translation);
+
+        /**
+         * Called when the animation either reached its target or was canceled.
+         */
+        void onAnimationEnd(boolean canceled);
+
+    }
+
+    private final View host;
+    private final Callback callback;
+
+    private FrameClock frameClock = FrameClock.SYSTEM;
+    private MotionModel motion;
+    private float endValue;
+    private float durationScale;
+    private long lastFrameTime;
+    private boolean running;
+
+    SheetTranslationAnimator(View host, Callback callback) {
+        this.host = host;
+        this.callback = callback;
+    }
+
+    /**
+     * Replace the clock frames are scheduled with. A running animation is canceled first.
+     */
+    void setFrameClock(FrameClock frameClock) {
+        cancel();
+        this.frameClock = frameClock;
+    }
+
+    /**
+     * Start animating from startValue to endValue using the given motion. A running animation is canceled first.
+     *
+     * @param velocity The velocity of the sheet in pixels per second, positive values move the sheet up.
+     */
+    void start(float startValue, float endValue, float velocity, MotionModel motion) {
+        cancel();
+        this.endValue = endValue;
+        this.motion = motion;
+        this.durationScale = frameClock.getDurationScale(host);
+        this.lastFrameTime = frameClock.getFrameTimeMillis();
+        this.running = true;
+        motion.start(startValue, endValue, velocity);
+        frameClock.postFrameCallback(host, this);
+    }
+
+    /**
+     * Stop the animation at its current value. Has no effect if nothing is running.
+     */
+    void cancel() {
+        if (running) {
+            running = false;
+            frameClock.removeFrameCallback(host, this);
+            callback.onAnimationEnd(true);
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    float getEndValue() {
+        return endValue;
+    }
+
+    /**
+     * @return The velocity of the running animation in pixels per second, or 0 if nothing is running.
+     */
+    float getVelocity() {
+        return running ? motion.getVelocity() : 0;
+    }
+
+    @Override
+    public void run() {
+        if (!running) {
+            return;
+        }
+        long frameTime = frameClock.getFrameTimeMillis();
+        boolean finished;
+        if (durationScale > 0) {
+            finished = motion.update((frameTime - lastFrameTime) / 1000f / durationScale);
+            callback.onAnimationUpdate(motion.getValue());
+        } else {
+            finished = true;
+            callback.onAnimationUpdate(endValue);
+        }
+        lastFrameTime = frameTime;
+        if (finished) {
+            running = false;
+            callback.onAnimationEnd(false);
+        } else {
+            frameClock.postFrameCallback(host, this);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.flipboard.bottomsheet;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Creates a sheet view off the main thread. See
+ * {@link BottomSheetLayout#showWithSheetView(SheetViewFactory, ViewTransformer, View)}.
+ */
+public interface SheetViewFactory {
+
+    /**
+     * Called on a background thread which has a Looper. Inflate and set up the sheet here, but don't touch any view
+     * which is attached to a window.
+     *
+     * @param context The context of the BottomSheetLayout.
+     * @param parent The BottomSheetLayout, only to be used for generating layout params while inflating.
+     *
+     * @return The sheet to present.
+     */
+    View createSheetView(Context context, ViewGroup parent);
+
+}
@@ -0,0 +1,124 @@
+package com.flipboard.bottomsheet;
+
+import java.util.Arrays;
+
+/**
+ * The sorted set of translations a released sheet can come to rest at. The peeked and max translations are always
+ * part of the set, any additional translations configured in between are merged in whenever the sheet geometry changes.
+ * A release is resolved by projecting where the sheet would come to rest with its velocity and picking the closest anchor
+ * to that point, so a single fling can skip over anchors instead of stopping at the next one.
+ */
+final class SnapPoints {
+
+    /**
+     * Friction used to project releases. It is lower than the friction used to animate flings so that a quick flick
+     * carries the sheet further, which makes it possible to reach a distant anchor in one gesture.
+     */
+    private static final float PROJECTION_FRICTION = 4f;
+
+    private final DecayMotion projection = new DecayMotion(PROJECTION_FRICTION);
+
+    private float[] translations = new float[0];
+    private float[] anchors = new float[2];
+    private int anchorCount;
+
+    /**
+     * @param translations Additional translations, counted from the bottom of the layout, the sheet can rest at. Must not
+     * be null, an empty array removes all additional translations.
+     */
+    void setTranslations(float[] translations) {
+        if (translations == null) {
+            throw new NullPointerException("translations == null");
+        }
+        this.translations = translations.clone();
+        Arrays.sort(this.translations);
+        if (anchors.length < this.translations.length + 2) {
+            anchors = new float[this.translations.length + 2];
+        }
+    }
+
+    float[] getTranslations() {
+        return translations.clone();
+    }
+
+    /**
+     * Rebuild the anchors for new peeked and max translations. Configured translations outside of that range are ignored.
+     */
+    void update(float peekTranslation, float maxTranslation) {
+        anchorCount = 0;
+        anchors[anchorCount++] = peekTranslation;
+        for (float translation : translations) {
+            if (translation > anchors[anchorCount - 1] && translation < maxTranslation) {
+                anchors[anchorCount++] = translation;
+            }
+        }
+        if (maxTranslation > anchors[anchorCount - 1]) {
+            anchors[anchorCount++] = maxTranslation;
+        }
+    }
+
+    /**
+     * Find the anchor a sheet released at translation with the given velocity should settle at.
+     *
+     * @param velocity The velocity in pixels per second, positive values move the sheet up.
+     * @param minFlingVelocity The velocity above which the sheet always moves on to the next anchor in the direction of the fling.
+     */
+    float findTarget(float translation, float velocity, float minFlingVelocity) {
+        float target = findClosest(projection.project(translation, velocity));
+        if (velocity >= minFlingVelocity && target <= translation) {
+            // A fling should never leave the sheet where it is or move it backwards.
+            target = anchors[Math.min(upperBound(translation), anchorCount - 1)];
+        } else if (velocity <= -minFlingVelocity && target >= translation) {
+            target = anchors[Math.max(lowerBound(translation) - 1, 0)];
+        }
+        return target;
+    }
+
+    private float findClosest(float translation) {
+        int index = lowerBound(translation);
+        if (index == 0) {
+            return anchors[0];
+        }
+        if (index == anchorCount) {
+            return anchors[anchorCount - 1];
+        }
+        float below = anchors[index - 1];
+        float above = anchors[index];
+        return translation - below < above - translation ? below : above;
+    }
+
+    /**
+     * @return The index of the first anchor which is greater than or equal to translation.
+     */
+    private int lowerBound(float translation) {
+        int low = 0;
+        int high = anchorCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (anchors[mid] < translation) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first anchor which is greater than translation.
+     */
+    private int upperBound(float translation) {
+        int low = 0;
+        int high = anchorCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (anchors[mid] <= translation) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.flipboard.bottomsheet;
+
+/**
+ * A damped spring pulling the sheet towards its end value. The motion starts with the velocity the sheet had, so a
+ * hard fling settles faster than a slow release and the settle time scales with the distance travelled.
+ *
+ * The spring is solved analytically so the result does not depend on the frame rate.
+ */
+public class SpringMotion implements MotionModel {
+
+    public static final float DEFAULT_STIFFNESS = 600f;
+    public static final float DEFAULT_DAMPING_RATIO = 1f;
+
+    /** Distance in pixels from the end value at which the spring is considered to be at rest */
+    private static final float VALUE_THRESHOLD = 0.5f;
+
+    /** Velocity in pixels per second under which the spring is considered to be at rest */
+    private static final float VELOCITY_THRESHOLD = 10f;
+
+    private final double naturalFrequency;
+    private final double dampingRatio;
+
+    private float endValue;
+    private double startDisplacement;
+    private double startVelocity;
+    private double time;
+    private float value;
+    private float velocity;
+
+    public SpringMotion() {
+        this(DEFAULT_STIFFNESS, DEFAULT_DAMPING_RATIO);
+    }
+
+    /**
+     * @param stiffness The stiffness of the spring, higher values result in faster motion. Must be positive.
+     * @param dampingRatio The damping ratio of the spring. 1 is critically damped, lower values bounce and higher
+     *                     values approach the end value more slowly. Must be positive.
+     */
+    public SpringMotion(float stiffness, float dampingRatio) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive");
+        }
+        if (dampingRatio <= 0) {
+            throw new IllegalArgumentException("dampingRatio must be positive");
+        }
+        this.naturalFrequency = Math.sqrt(stiffness);
+        this.dampingRatio = dampingRatio;
+    }
+
+    @Override
+    public void start(float startValue, float endValue, float startVelocity) {
+        this.endValue = endValue;
+        this.startDisplacement = startValue - endValue;
+        this.startVelocity = startVelocity;
+        this.time = 0;
+        this.value = startValue;
+        this.velocity = startVelocity;
+    }
+
+    @Override
+    public boolean update(float deltaTime) {
+        time += deltaTime;
+        double w = naturalFrequency;
+        double x0 = startDisplacement;
+        double v0 = startVelocity;
+        double displacement;
+        double speed;
+        if (dampingRatio < 1) {
+            double dampedFrequency = w * Math.sqrt(1 - dampingRatio * dampingRatio);
+            double a = x0;
+            double b = (v0 + dampingRatio * w * x0) / dampedFrequency;
+            double decay = Math.exp(-dampingRatio * w * time);
+            double cos = Math.cos(dampedFrequency * time);
+            double sin = Math.sin(dampedFrequency * time);
+            displacement = decay * (a * cos + b * sin);
+            speed = decay * (-dampingRatio * w * (a * cos + b * sin) + dampedFrequency * (b * cos - a * sin));
+        } else if (dampingRatio == 1) {
+            double a = x0;
+            double b = v0 + w * x0;
+            double decay = Math.exp(-w * time);
+            displacement = (a + b * time) * decay;
+            speed = (b - w * (a + b * time)) * decay;
+        } else {
+            double root = Math.sqrt(dampingRatio * dampingRatio - 1);
+            double r1 = -w * (dampingRatio - root);
+            double r2 = -w * (dampingRatio + root);
+            double c2 = (v0 - r1 * x0) / (r2 - r1);
+            double c1 = x0 - c2;
+            double e1 = Math.exp(r1 * time);
+            double e2 = Math.exp(r2 * time);
+            displacement = c1 * e1 + c2 * e2;
+            speed = c1 * r1 * e1 + c2 * r2 * e2;
+        }
+
+        if (Math.abs(displacement) < VALUE_THRESHOLD && Math.abs(speed) < VELOCITY_THRESHOLD) {
+            value = endValue;
+            velocity = 0;
+            return true;
+        }
+        value = (float) (endValue + displacement);
+        velocity = (float) speed;
+        return false;
+    }
+
+    @Override
+    public float getValue() {
+        return value;
+    }
+
+    @Override
+    public float getVelocity() {
+        return velocity;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.flipboard.bottomsheet;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.os.Build;
+import android.provider.Settings;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+/**
+ * The default {@link FrameClock}, see {@link FrameClock#SYSTEM}.
+ */
+final class SystemFrameClock implements FrameClock {
+
+    @Override
+    public long getFrameTimeMillis() {
+        return AnimationUtils.currentAnimationTimeMillis();
+    }
+
+    @Override
+    public void postFrameCallback(View host, Runnable callback) {
+        ViewCompat.postOnAnimation(host, callback);
+    }
+
+    @Override
+    public void removeFrameCallback(View host, Runnable callback) {
+        host.removeCallbacks(callback);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public float getDurationScale(View host) {
+        ContentResolver contentResolver = host.getContext().getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return getGlobalDurationScale(contentResolver);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return Settings.System.getFloat(contentResolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        return 1f;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static float getGlobalDurationScale(ContentResolver contentResolver) {
+        return Settings.Global.getFloat(contentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+    }
+
+}
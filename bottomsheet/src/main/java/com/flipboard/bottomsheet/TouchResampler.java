@@ -0,0 +1,81 @@
+package com.flipboard.bottomsheet;
+
+import android.view.MotionEvent;
+
+/**
+ * Estimates where the finger is at the time a frame is drawn from the touch samples received so far. Touch samples
+ * arrive at the rate of the touch panel, which is not aligned with the display, so using the latest sample leaves the
+ * sheet up to a frame behind the finger at varying distances. Like the resampling of the platform input dispatcher this
+ * interpolates between the two samples around a point slightly before the frame time, and extrapolates a limited amount
+ * when the latest sample is older than that.
+ */
+final class TouchResampler {
+
+    /** How far before the frame time to sample, this leaves room for a sample arriving late to be interpolated */
+    private static final long RESAMPLE_LATENCY = 5;
+
+    /** Samples closer together than this in milliseconds are too noisy to extrapolate from */
+    private static final long MIN_SAMPLE_INTERVAL = 2;
+
+    /** The furthest a position is ever extrapolated into the future in milliseconds */
+    private static final long MAX_PREDICTION = 8;
+
+    private int sampleCount;
+    private long previousTime;
+    private float previousY;
+    private long latestTime;
+    private float latestY;
+
+    void reset() {
+        sampleCount = 0;
+    }
+
+    /**
+     * Add the position of a pointer in event, including the historical positions batched into it.
+     *
+     * @param pointerIndex The index of the pointer driving the drag.
+     */
+    void addSamples(MotionEvent event, int pointerIndex) {
+        for (int i = 0, size = event.getHistorySize(); i < size; i++) {
+            addSample(event.getHistoricalEventTime(i), event.getHistoricalY(pointerIndex, i));
+        }
+        addSample(event.getEventTime(), event.getY(pointerIndex));
+    }
+
+    private void addSample(long time, float y) {
+        if (sampleCount > 0 && time <= latestTime) {
+            // Keep the samples strictly ordered, a duplicate time only updates the position.
+            latestY = y;
+            return;
+        }
+        previousTime = latestTime;
+        previousY = latestY;
+        latestTime = time;
+        latestY = y;
+        sampleCount++;
+    }
+
+    /**
+     * @param frameTime The time of the frame the position is going to be drawn in, in the uptime base of touch events.
+     *
+     * @return The estimated y position of the finger at the given frame time.
+     */
+    float resample(long frameTime) {
+        long interval = latestTime - previousTime;
+        if (sampleCount < 2 || interval < MIN_SAMPLE_INTERVAL) {
+            return latestY;
+        }
+        long sampleTime = frameTime - RESAMPLE_LATENCY;
+        if (sampleTime <= previousTime) {
+            // The frame is older than the samples, there is nothing to align.
+            return latestY;
+        }
+        if (sampleTime > latestTime) {
+            // Never predict further than half the sample interval, fast but irregular panels would overshoot.
+            sampleTime = Math.min(sampleTime, latestTime + Math.min(MAX_PREDICTION, interval / 2));
+        }
+        float fraction = (float) (sampleTime - previousTime) / interval;
+        return previousY + (latestY - previousY) * fraction;
+    }
+
+}
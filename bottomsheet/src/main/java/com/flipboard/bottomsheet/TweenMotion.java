@@ -0,0 +1,59 @@
+package com.flipboard.bottomsheet;
+
+import android.animation.TimeInterpolator;
+
+/**
+ * A motion with a fixed duration and a time interpolator. This ignores the start velocity and is the classic
+ * way BottomSheetLayout has animated the sheet.
+ */
+public class TweenMotion implements MotionModel {
+
+    private final long duration;
+    private final TimeInterpolator interpolator;
+
+    private float startValue;
+    private float endValue;
+    private float elapsed;
+    private float value;
+    private float velocity;
+
+    /**
+     * @param duration The duration of every motion in milliseconds.
+     * @param interpolator The interpolator applied to the progress of the motion, may be null for linear motion.
+     */
+    public TweenMotion(long duration, TimeInterpolator interpolator) {
+        this.duration = duration;
+        this.interpolator = interpolator;
+    }
+
+    @Override
+    public void start(float startValue, float endValue, float startVelocity) {
+        this.startValue = startValue;
+        this.endValue = endValue;
+        this.elapsed = 0;
+        this.value = startValue;
+        this.velocity = 0;
+    }
+
+    @Override
+    public boolean update(float deltaTime) {
+        elapsed += deltaTime * 1000;
+        float fraction = duration > 0 ? Math.min(1f, elapsed / duration) : 1f;
+        float interpolated = interpolator != null ? interpolator.getInterpolation(fraction) : fraction;
+        float newValue = startValue + (endValue - startValue) * interpolated;
+        velocity = deltaTime > 0 ? (newValue - value) / deltaTime : 0;
+        value = newValue;
+        return fraction >= 1f;
+    }
+
+    @Override
+    public float getValue() {
+        return value;
+    }
+
+    @Override
+    public float getVelocity() {
+        return velocity;
+    }
+
+}
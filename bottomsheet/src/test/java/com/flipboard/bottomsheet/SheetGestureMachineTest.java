@@ -0,0 +1,226 @@
+package com.flipboard.bottomsheet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SheetGestureMachineTest {
+
+    private static final float MAX_TRANSLATION = SimulatedSheet.MAX_TRANSLATION;
+    private static final float PEEK_TRANSLATION = SimulatedSheet.PEEK_TRANSLATION;
+    private static final float TOUCH_SLOP = SimulatedSheet.TOUCH_SLOP;
+    private static final float X = 500;
+    private static final float DOWN_Y = 1500;
+
+    private SimulatedSheet sheet;
+    private SheetGestureMachine machine;
+
+    @Before
+    public void setUp() {
+        sheet = new SimulatedSheet();
+        machine = sheet.machine;
+    }
+
+    private int touch(int action, float x, float y) {
+        return sheet.touch(action, x, y, 0);
+    }
+
+    /**
+     * Put a finger down on the peeked sheet and drag it up by distance, past the touch slop.
+     */
+    private void dragUp(float distance) {
+        touch(SheetGestureMachine.ACTION_DOWN, X, DOWN_Y);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y - TOUCH_SLOP - 1);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y - TOUCH_SLOP - 1 - distance);
+        assertTrue(machine.isDragging());
+    }
+
+    @Test
+    public void secondFingerDownDoesNotMoveTheSheet() {
+        dragUp(100);
+        assertEquals(PEEK_TRANSLATION + 100, sheet.translation, 0);
+
+        // The second finger lands far away from the first one and takes over the drag.
+        sheet.pointerDown(1, X, 400);
+        assertEquals(1, machine.getActivePointerId());
+        int commands = sheet.move(1, X, 400);
+        assertEquals(SheetGestureMachine.COMMAND_TRANSLATE, commands);
+        assertEquals(PEEK_TRANSLATION + 100, sheet.translation, 0);
+    }
+
+    @Test
+    public void secondFingerDrivesTheSheetAfterTakingOver() {
+        dragUp(100);
+        sheet.pointerDown(1, X, 400);
+        sheet.move(1, X, 350);
+        assertEquals(PEEK_TRANSLATION + 150, sheet.translation, 0);
+
+        // Moving the first finger no longer moves the sheet.
+        sheet.move(0, X, 1000);
+        assertEquals(PEEK_TRANSLATION + 150, sheet.translation, 0);
+        sheet.move(1, X, 450);
+        assertEquals(PEEK_TRANSLATION + 50, sheet.translation, 0);
+    }
+
+    @Test
+    public void liftingTheDrivingFingerHandsOverToTheRemainingFinger() {
+        dragUp(100);
+        sheet.pointerDown(1, X, 400);
+        sheet.move(1, X, 380);
+        float translation = sheet.translation;
+
+        // The remaining finger continues the drag from where it is, without moving the sheet.
+        sheet.pointerUp(1);
+        assertEquals(0, machine.getActivePointerId());
+        sheet.move(0, X, DOWN_Y - TOUCH_SLOP - 1 - 100);
+        assertEquals(translation, sheet.translation, 0);
+        sheet.move(0, X, DOWN_Y - TOUCH_SLOP - 1 - 110);
+        assertEquals(translation + 10, sheet.translation, 0);
+    }
+
+    @Test
+    public void liftingAnotherFingerKeepsTheDrivingFinger() {
+        dragUp(100);
+        sheet.pointerDown(1, X, 400);
+        sheet.move(1, X, 380);
+        float translation = sheet.translation;
+
+        sheet.pointerUp(0);
+        assertEquals(1, machine.getActivePointerId());
+        sheet.move(1, X, 370);
+        assertEquals(translation + 10, sheet.translation, 0);
+    }
+
+    @Test
+    public void handOverFollowsPointerIdsRatherThanIndexes() {
+        dragUp(100);
+        sheet.pointerDown(7, X, 400);
+        sheet.pointerDown(3, X, 800);
+        assertEquals(3, machine.getActivePointerId());
+
+        // Lifting the first finger shifts the indexes of the others, the last finger keeps driving.
+        sheet.pointerUp(0);
+        assertEquals(3, machine.getActivePointerId());
+
+        // Lifting the driving finger, now at index 1, hands over to the finger at index 0.
+        sheet.pointerUp(3);
+        assertEquals(7, machine.getActivePointerId());
+        float translation = sheet.translation;
+        sheet.move(7, X, 390);
+        assertEquals(translation + 10, sheet.translation, 0);
+    }
+
+    @Test
+    public void secondFingerBelowPeekDoesNotJump() {
+        touch(SheetGestureMachine.ACTION_DOWN, X, DOWN_Y);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1 + 200);
+        // Below the peeked translation the sheet only follows a quarter of the finger movement.
+        assertEquals(PEEK_TRANSLATION - 50, sheet.translation, 0);
+
+        sheet.pointerDown(1, X, 1000);
+        sheet.move(1, X, 1000);
+        assertEquals(PEEK_TRANSLATION - 50, sheet.translation, 0);
+        sheet.move(1, X, 1040);
+        assertEquals(PEEK_TRANSLATION - 60, sheet.translation, 0);
+    }
+
+    @Test
+    public void releaseAfterHandOverSettlesFromTheCurrentTranslation() {
+        dragUp(100);
+        sheet.pointerDown(1, X, 400);
+        int commands = sheet.touch(SheetGestureMachine.ACTION_UP, X, 400, 0);
+        // The sheet did not move after the hand over, so it settles from where it was instead of jumping.
+        assertTrue((commands & SheetGestureMachine.COMMAND_SETTLE) != 0);
+        assertFalse((commands & SheetGestureMachine.COMMAND_DISMISS) != 0);
+        assertEquals(PEEK_TRANSLATION + 100, machine.getTranslation(), 0);
+        assertEquals(PEEK_TRANSLATION, machine.getTargetTranslation(), 0);
+    }
+
+    @Test
+    public void catchingBelowPeekDoesNotJump() {
+        // A finger catches the sheet while it animates in, well below the peeked translation.
+        sheet.translation = 300;
+        int commands = sheet.down(X, DOWN_Y, true);
+        assertTrue((commands & SheetGestureMachine.COMMAND_TRANSLATE) != 0);
+        assertEquals(300, machine.getTranslation(), 0);
+
+        // From there the sheet follows a quarter of the finger movement, as when dragged below the peeked translation.
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y - 40);
+        assertEquals(310, sheet.translation, 0);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + 40);
+        assertEquals(290, sheet.translation, 0);
+    }
+
+    @Test
+    public void dragTranslationMatchesAMoveWithoutAdvancingTheGesture() {
+        dragUp(100);
+        float y = DOWN_Y - TOUCH_SLOP - 1 - 100;
+
+        // A resampled position between the samples, and one far enough down to be resisted below the peek.
+        assertEquals(PEEK_TRANSLATION + 80, machine.getDragTranslation(y + 20), 0);
+        assertEquals(PEEK_TRANSLATION - 50, machine.getDragTranslation(y + 300), 0);
+        assertEquals(MAX_TRANSLATION, machine.getDragTranslation(0), 0);
+
+        touch(SheetGestureMachine.ACTION_MOVE, X, y + 300);
+        assertEquals(PEEK_TRANSLATION - 50, sheet.translation, 0);
+    }
+
+    @Test
+    public void releaseBelowPeekDismissesUnlessFlungUp() {
+        assertEquals(SheetGestureMachine.COMMAND_DISMISS, machine.release(PEEK_TRANSLATION - 100, 0));
+        assertEquals(SheetGestureMachine.COMMAND_DISMISS, machine.release(PEEK_TRANSLATION - 100, -1000));
+
+        assertEquals(SheetGestureMachine.COMMAND_SETTLE, machine.release(PEEK_TRANSLATION - 100, 1000));
+        assertEquals(PEEK_TRANSLATION, machine.getTargetTranslation(), 0);
+        assertEquals(1000, machine.getVelocity(), 0);
+    }
+
+    @Test
+    public void releaseAbovePeekSettlesAtTheFlingTarget() {
+        assertEquals(SheetGestureMachine.COMMAND_SETTLE, machine.release(PEEK_TRANSLATION + 100, 0));
+        assertEquals(PEEK_TRANSLATION, machine.getTargetTranslation(), 0);
+        assertEquals(SheetGestureMachine.COMMAND_SETTLE, machine.release(PEEK_TRANSLATION + 100, 1000));
+        assertEquals(MAX_TRANSLATION, machine.getTargetTranslation(), 0);
+    }
+
+    @Test
+    public void dragReleasedBelowPeekIsDismissed() {
+        touch(SheetGestureMachine.ACTION_DOWN, X, DOWN_Y);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1 + 400);
+
+        int commands = sheet.touch(SheetGestureMachine.ACTION_UP, X, DOWN_Y + TOUCH_SLOP + 1 + 400, -500);
+        assertTrue((commands & SheetGestureMachine.COMMAND_DISMISS) != 0);
+        assertEquals(-500, machine.getVelocity(), 0);
+    }
+
+    @Test
+    public void cancelReturnsToTheStartingTranslation() {
+        touch(SheetGestureMachine.ACTION_DOWN, X, DOWN_Y);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1);
+        touch(SheetGestureMachine.ACTION_MOVE, X, DOWN_Y + TOUCH_SLOP + 1 + 400);
+
+        // Dragged far enough to be dismissed when released, but a canceled gesture never dismisses.
+        int commands = touch(SheetGestureMachine.ACTION_CANCEL, X, DOWN_Y + TOUCH_SLOP + 1 + 400);
+        assertTrue((commands & SheetGestureMachine.COMMAND_SETTLE) != 0);
+        assertFalse((commands & SheetGestureMachine.COMMAND_DISMISS) != 0);
+        assertEquals(PEEK_TRANSLATION, machine.getTargetTranslation(), 0);
+        assertEquals(0, machine.getVelocity(), 0);
+    }
+
+    @Test
+    public void cancelAfterHandOverReturnsToTheStartingTranslation() {
+        dragUp(300);
+        sheet.pointerDown(1, X, 400);
+        sheet.move(1, X, 300);
+
+        int commands = touch(SheetGestureMachine.ACTION_CANCEL, X, 300);
+        assertTrue((commands & SheetGestureMachine.COMMAND_SETTLE) != 0);
+        assertEquals(PEEK_TRANSLATION, machine.getTargetTranslation(), 0);
+    }
+
+}
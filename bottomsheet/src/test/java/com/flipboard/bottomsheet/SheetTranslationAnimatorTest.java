@@ -0,0 +1,205 @@
+package com.flipboard.bottomsheet;
+
+import android.animation.TimeInterpolator;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SheetTranslationAnimatorTest {
+
+    private static final long FRAME_INTERVAL = 16;
+    private static final int TRANSITIONS = 100;
+    private static final int MEASURE_ATTEMPTS = 5;
+
+    /**
+     * Holds the single callback of the animator until the next frame.
+     */
+    private static final class TestFrameClock implements FrameClock {
+
+        long frameTime;
+        float durationScale = 1;
+        private Runnable callback;
+
+        @Override
+        public long getFrameTimeMillis() {
+            return frameTime;
+        }
+
+        @Override
+        public void postFrameCallback(View host, Runnable callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void removeFrameCallback(View host, Runnable callback) {
+            if (this.callback == callback) {
+                this.callback = null;
+            }
+        }
+
+        @Override
+        public float getDurationScale(View host) {
+            return durationScale;
+        }
+
+        void advanceFrame() {
+            frameTime += FRAME_INTERVAL;
+            Runnable callback = this.callback;
+            this.callback = null;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+
+    }
+
+    private static final class TestCallback implements SheetTranslationAnimator.Callback {
+
+        float translation;
+        int updates;
+        int ends;
+
+        @Override
+        public void onAnimationUpdate(float translation) {
+            this.translation = translation;
+            updates++;
+        }
+
+        @Override
+        public void onAnimationEnd(boolean canceled) {
+            ends++;
+        }
+
+    }
+
+    private TestFrameClock frameClock;
+    private TestCallback callback;
+    private SheetTranslationAnimator animator;
+
+    @Before
+    public void setUp() {
+        frameClock = new TestFrameClock();
+        callback = new TestCallback();
+        animator = new SheetTranslationAnimator(null, callback);
+        animator.setFrameClock(frameClock);
+    }
+
+    /**
+     * Bakes the curve BottomSheetLayout animates with by default. BakedInterpolator itself can't be used here as it bakes
+     * a framework interpolator when loaded.
+     */
+    private static TimeInterpolator bakedDecelerate() {
+        final BakedCurve curve = BakedCurve.bake(new TimeInterpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return (float) (1 - Math.pow(1 - input, 2 * 1.6));
+            }
+        });
+        return new TimeInterpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return curve.getValue(input);
+            }
+        };
+    }
+
+    /**
+     * Run transitions back and forth between the peeked and max translations until they settle.
+     *
+     * @return The number of frames run.
+     */
+    private int runTransitions(MotionModel motion) {
+        int frames = 0;
+        for (int i = 0; i < TRANSITIONS; i++) {
+            boolean up = i % 2 == 0;
+            animator.start(up ? 900 : 1800, up ? 1800 : 900, up ? 3000 : -3000, motion);
+            while (animator.isRunning()) {
+                frameClock.advanceFrame();
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    private void assertTransitionsDoNotAllocate(MotionModel motion) {
+        // Load and initialize everything the transitions touch before measuring.
+        runTransitions(motion);
+
+        // The JIT compiling the code under test while it is measured can be accounted to this thread, which is why a
+        // few attempts are made. An allocation per frame or per transition shows up in every attempt.
+        long allocated = Long.MAX_VALUE;
+        int frames = 0;
+        for (int attempt = 0; attempt < MEASURE_ATTEMPTS && allocated > 0; attempt++) {
+            long start = allocatedBytes();
+            long overhead = allocatedBytes() - start;
+            start = allocatedBytes();
+            frames = runTransitions(motion);
+            allocated = Math.min(allocated, allocatedBytes() - start - overhead);
+        }
+
+        assertTrue(frames > TRANSITIONS);
+        assertEquals("Bytes allocated over " + frames + " frames", 0, allocated);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void tweenTransitionsDoNotAllocate() {
+        assertTransitionsDoNotAllocate(new TweenMotion(300, bakedDecelerate()));
+    }
+
+    @Test
+    public void springTransitionsDoNotAllocate() {
+        assertTransitionsDoNotAllocate(new SpringMotion());
+    }
+
+    @Test
+    public void decayTransitionsDoNotAllocate() {
+        assertTransitionsDoNotAllocate(new DecayMotion());
+    }
+
+    @Test
+    public void durationScaleStretchesTheTransition() {
+        animator.start(0, 1000, 0, new TweenMotion(320, null));
+        int frames = 0;
+        while (animator.isRunning()) {
+            frameClock.advanceFrame();
+            frames++;
+        }
+        assertEquals(20, frames);
+
+        frameClock.durationScale = 2;
+        animator.start(0, 1000, 0, new TweenMotion(320, null));
+        frames = 0;
+        while (animator.isRunning()) {
+            frameClock.advanceFrame();
+            frames++;
+        }
+        assertEquals(40, frames);
+        assertEquals(1000, callback.translation, 0);
+    }
+
+    @Test
+    public void zeroDurationScaleEndsInTheFirstFrame() {
+        frameClock.durationScale = 0;
+        animator.start(900, 0, 0, new SpringMotion());
+        assertTrue(animator.isRunning());
+
+        frameClock.advanceFrame();
+        assertFalse(animator.isRunning());
+        assertEquals(1, callback.updates);
+        assertEquals(1, callback.ends);
+        assertEquals(0, callback.translation, 0);
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.flipboard.bottomsheet;
+
+
+/**
+ * A sheet without any views which carries out the commands of a {@link SheetGestureMachine} the same way
+ * BottomSheetLayout does, as far as the geometry of the sheet is concerned. It also stands in for the fingers on the
+ * screen, feeding the machine the position of the finger driving the gesture like BottomSheetLayout does.
+ *
+ * Shared by the tests and the benchmarks.
+ */
+final class SimulatedSheet implements SheetGestureMachine.Host, SheetGestureMachine.Pointers {
+
+    static final float HEIGHT = 1920;
+    static final float MAX_TRANSLATION = 1800;
+    static final float PEEK_TRANSLATION = 900;
+    static final float TOUCH_SLOP = 24;
+    static final float MIN_FLING_VELOCITY = 150;
+
+    private static final int MAX_POINTERS = 4;
+
+    final SheetGestureMachine machine = new SheetGestureMachine(this, TOUCH_SLOP, MIN_FLING_VELOCITY);
+
+    float translation = PEEK_TRANSLATION;
+    boolean expanded;
+
+    /** The fingers on the screen, in the order they touched down */
+    private final int[] pointerIds = new int[MAX_POINTERS];
+    private final float[] pointerX = new float[MAX_POINTERS];
+    private final float[] pointerY = new float[MAX_POINTERS];
+    private int pointerCount;
+
+    /**
+     * Feed a sample of a single finger gesture to the machine and apply the commands it answers with. A down starts
+     * over with a single finger with id 0, any other action moves the finger driving the gesture.
+     */
+    int touch(int action, float x, float y, float velocity) {
+        if (action == SheetGestureMachine.ACTION_DOWN) {
+            return down(x, y, false);
+        }
+        int index = indexOf(machine.getActivePointerId());
+        pointerX[index] = x;
+        pointerY[index] = y;
+        int commands = machine.onTouch(action, x, y, velocity);
+        apply(commands);
+        return commands;
+    }
+
+    /**
+     * Start a gesture with a single finger with id 0.
+     *
+     * @param caughtAnimation Whether the finger catches the sheet while it animates.
+     */
+    int down(float x, float y, boolean caughtAnimation) {
+        pointerCount = 1;
+        pointerIds[0] = 0;
+        pointerX[0] = x;
+        pointerY[0] = y;
+        int commands = machine.onDown(0, x, y, caughtAnimation);
+        apply(commands);
+        return commands;
+    }
+
+    /**
+     * Put another finger down.
+     */
+    void pointerDown(int pointerId, float x, float y) {
+        pointerIds[pointerCount] = pointerId;
+        pointerX[pointerCount] = x;
+        pointerY[pointerCount] = y;
+        pointerCount++;
+        machine.onPointerDown(this, pointerCount - 1);
+    }
+
+    /**
+     * Lift one of several fingers.
+     */
+    void pointerUp(int pointerId) {
+        int index = indexOf(pointerId);
+        machine.onPointerUp(this, index);
+        pointerCount--;
+        System.arraycopy(pointerIds, index + 1, pointerIds, index, pointerCount - index);
+        System.arraycopy(pointerX, index + 1, pointerX, index, pointerCount - index);
+        System.arraycopy(pointerY, index + 1, pointerY, index, pointerCount - index);
+    }
+
+    /**
+     * Move any of the fingers. Like every move event, this feeds the machine the position of the driving finger.
+     */
+    int move(int pointerId, float x, float y) {
+        int index = indexOf(pointerId);
+        pointerX[index] = x;
+        pointerY[index] = y;
+        int active = indexOf(machine.getActivePointerId());
+        int commands = machine.onTouch(SheetGestureMachine.ACTION_MOVE, pointerX[active], pointerY[active], 0);
+        apply(commands);
+        return commands;
+    }
+
+    private void apply(int commands) {
+        if ((commands & SheetGestureMachine.COMMAND_DETACH_FROM_TOP) != 0) {
+            expanded = false;
+        }
+        if ((commands & SheetGestureMachine.COMMAND_ATTACH_TO_TOP) != 0) {
+            translation = MAX_TRANSLATION;
+            expanded = true;
+        }
+        if ((commands & SheetGestureMachine.COMMAND_TRANSLATE) != 0) {
+            translation = machine.getTranslation();
+        }
+        if ((commands & SheetGestureMachine.COMMAND_SETTLE) != 0) {
+            // Jump straight to the end of the animation.
+            translation = machine.getTargetTranslation();
+            expanded = translation >= MAX_TRANSLATION;
+        }
+    }
+
+    private int indexOf(int pointerId) {
+        for (int i = 0; i < pointerCount; i++) {
+            if (pointerIds[i] == pointerId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No pointer with id " + pointerId);
+    }
+
+    @Override
+    public int getPointerId(int pointerIndex) {
+        return pointerIds[pointerIndex];
+    }
+
+    @Override
+    public float getX(int pointerIndex) {
+        return pointerX[pointerIndex];
+    }
+
+    @Override
+    public float getY(int pointerIndex) {
+        return pointerY[pointerIndex];
+    }
+
+    @Override
+    public float getTranslation() {
+        return translation;
+    }
+
+    @Override
+    public float getMaxTranslation() {
+        return MAX_TRANSLATION;
+    }
+
+    @Override
+    public float getPeekTranslation() {
+        return PEEK_TRANSLATION;
+    }
+
+    @Override
+    public boolean isExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public boolean canScrollUp() {
+        return false;
+    }
+
+    @Override
+    public boolean isOutsideSheet(float x, float y) {
+        return y < HEIGHT - translation;
+    }
+
+}